@@ -0,0 +1,193 @@
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Depth-first search for all shortest paths between the components of a
+ * CircuitBoard that works on one board in place, for CircuitTracer's -b
+ * option.
+ *
+ * A stack TraceSearch stores a TraceState, with its own copy of the board
+ * and of the path, for every position it might visit, and most of them are
+ * thrown away. Here the path is an array of row-major positions and, for
+ * each depth, the next direction to try. Going deeper marks the position
+ * with makeTrace and backtracking clears it again, so nothing is allocated
+ * per state; a TraceState is built only for each solution found.
+ *
+ * Directions are tried last to first, the order in which a stack returns
+ * the states a TraceSearch pushes first to last, and the same
+ * DistanceField bound prunes the same positions. The solutions therefore
+ * come out in the same order as with -s, after expanding the same number of
+ * states. Like a TraceSearch it can be given a deadline and a limit on the
+ * states expanded, checked before every state, and then returns the
+ * solutions found so far.
+ *
+ * @author Chelsea Ma
+ */
+public class BacktrackSearch {
+	private static final int[][] DIRECTIONS = {{-1, 0}, {1, 0}, {0, -1}, {0, 1}};
+
+	private final CircuitBoard board;
+	private final DistanceField toEnd;
+	/** length of a shortest trace, or DistanceField.UNREACHABLE */
+	private final int shortestLength;
+	/** milliseconds run() may take, 0 for no limit */
+	private long deadlineMillis;
+	/** most states run() may expand */
+	private long maxStates = Long.MAX_VALUE;
+	/** run() stops after this many solutions */
+	private int maxSolutions = Integer.MAX_VALUE;
+	private TraceSearch.Outcome outcome = TraceSearch.Outcome.running;
+	private long statesExpanded;
+	private int solutionsFound;
+	private long firstSolutionStates;
+	private long elapsedNanos;
+
+	/**
+	 * @param board board to search, never modified
+	 */
+	public BacktrackSearch(CircuitBoard board) {
+		this.board = board;
+		toEnd = DistanceField.toEnd(board);
+		shortestLength = toEnd.traceLengthFrom(board.getStartingPoint().x, board.getStartingPoint().y);
+	}
+
+	/** @param millis longest time run() may take, from when it starts, or 0 for no limit */
+	public void setDeadline(long millis) {
+		deadlineMillis = millis;
+	}
+
+	/** @param states most states run() may expand */
+	public void setMaxStates(long states) {
+		maxStates = states;
+	}
+
+	/** @param solutions number of solutions after which run() stops */
+	public void setMaxSolutions(int solutions) {
+		maxSolutions = solutions;
+	}
+
+	/** @return number of positions the last run() stepped onto, the states a stack search would expand */
+	public long statesExpanded() {
+		return statesExpanded;
+	}
+
+	/** @return why the last run() stopped, or running before run() */
+	public TraceSearch.Outcome outcome() {
+		return outcome;
+	}
+
+	/** @return one line saying how the last run() ended, in the form of TraceSearch.summary() */
+	public String summary() {
+		int best = (solutionsFound > 0) ? shortestLength : 0;
+		return TraceSearch.summary("backtrack", outcome, statesExpanded, elapsedNanos, shortestLength, best,
+				firstSolutionStates, best, solutionsFound);
+	}
+
+	/** Run the search to completion or until its budget runs out
+	 * @return all shortest solutions in the order they were found, or those found within the budget
+	 */
+	public ArrayList<TraceState> run() {
+		TracerEvents.Search event = new TracerEvents.Search();
+		event.begin();
+		long startNanos = System.nanoTime();
+		statesExpanded = 0;
+		solutionsFound = 0;
+		firstSolutionStates = 0;
+		outcome = TraceSearch.Outcome.complete;
+		ArrayList<TraceState> bestPaths = search(startNanos + deadlineMillis * 1000000);
+		elapsedNanos = System.nanoTime() - startNanos;
+		event.end();
+		if (event.shouldCommit()) {
+			event.storage = "backtrack";
+			event.statesExpanded = statesExpanded;
+			event.optimalLength = shortestLength;
+			event.solutions = bestPaths.size();
+			event.firstSolutionStates = firstSolutionStates;
+			event.firstSolutionLength = (solutionsFound > 0) ? shortestLength : 0;
+			event.commit();
+		}
+		return bestPaths;
+	}
+
+	/** the search loop of run()
+	 * @param deadline System.nanoTime() at which to stop, if there is a deadline
+	 */
+	private ArrayList<TraceState> search(long deadline) {
+		ArrayList<TraceState> bestPaths = new ArrayList<>();
+		if (shortestLength == DistanceField.UNREACHABLE) {
+			return bestPaths;
+		}
+		int cols = board.numCols();
+		Point start = board.getStartingPoint();
+		Point end = board.getEndingPoint();
+		CircuitBoard work = new CircuitBoard(board);
+
+		//path[i] is the row-major position at depth i, next[i] the next direction to try from depth i
+		int[] path = new int[shortestLength];
+		int[] next = new int[shortestLength + 1];
+		int depth = 0;
+		next[0] = DIRECTIONS.length - 1;
+		while (true) {
+			if (next[depth] < 0) {
+				//every direction tried, step back
+				if (depth == 0) {
+					break;
+				}
+				depth--;
+				work.clearTrace(path[depth] / cols, path[depth] % cols);
+				continue;
+			}
+			int[] dir = DIRECTIONS[next[depth]--];
+			int row = ((depth == 0) ? start.x : path[depth - 1] / cols) + dir[0];
+			int col = ((depth == 0) ? start.y : path[depth - 1] % cols) + dir[1];
+			if (!work.isOpen(row, col) || !canImprove(depth + 1, row, col)) {
+				continue;
+			}
+
+			//the same checks, in the same order, as a TraceSearch makes before every state
+			if (solutionsFound >= maxSolutions) {
+				outcome = TraceSearch.Outcome.solutionLimit;
+				break;
+			}
+			if (statesExpanded >= maxStates) {
+				outcome = TraceSearch.Outcome.stateLimit;
+				break;
+			}
+			if (deadlineMillis > 0 && System.nanoTime() - deadline >= 0) {
+				outcome = TraceSearch.Outcome.deadline;
+				break;
+			}
+			statesExpanded++;
+			if (Math.abs(row - end.x) + Math.abs(col - end.y) == 1) {
+				//a solution, never extended further; with exact pruning it is a shortest one
+				path[depth] = row * cols + col;
+				bestPaths.add(snapshot(path, depth + 1, cols));
+				if (solutionsFound++ == 0) {
+					firstSolutionStates = statesExpanded;
+				}
+			} else {
+				work.makeTrace(row, col);
+				path[depth++] = row * cols + col;
+				next[depth] = DIRECTIONS.length - 1;
+			}
+		}
+		return bestPaths;
+	}
+
+	/** @return true if a path of the given length ending at row, col could still
+	 * reach '2' without becoming longer than a shortest trace */
+	private boolean canImprove(int length, int row, int col) {
+		int remaining = toEnd.distance(row, col);
+		return remaining != DistanceField.UNREACHABLE && length + remaining - 1 <= shortestLength;
+	}
+
+	/** @return the first length positions of path traced on a copy of the board */
+	private TraceState snapshot(int[] path, int length, int cols) {
+		List<Point> points = new ArrayList<>(length);
+		for (int i = 0; i < length; i++) {
+			points.add(new Point(path[i] / cols, path[i] % cols));
+		}
+		return new TraceState(board, points);
+	}
+}
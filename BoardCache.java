@@ -0,0 +1,93 @@
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+
+/**
+ * Loads text boards through a binary sidecar file (the input file name
+ * plus ".ctb") that is written the first time a board is read and reused
+ * afterwards. A sidecar is trusted when the source file's last modified
+ * time and length match the stamp in its header; otherwise the source is
+ * checksummed and the sidecar is rebuilt if the contents changed.
+ * 
+ * @author Chelsea Ma
+ */
+public class BoardCache {
+	/** suffix appended to a text board's file name to name its sidecar */
+	public static final String SUFFIX = ".ctb";
+
+	/** Load a CircuitBoard, using and maintaining its binary sidecar
+	 * @param filename text or binary board file
+	 * @return the board
+	 * @throws FileNotFoundException if the board file cannot be opened
+	 * @throws InvalidFileFormatException for any file formatting or content issue
+	 */
+	public static CircuitBoard load(String filename) throws FileNotFoundException {
+		File source = new File(filename);
+		if (!source.isFile() || filename.endsWith(SUFFIX)) {
+			return new CircuitBoard(filename); //nothing to cache, let the constructor report problems
+		}
+		File sidecar = new File(filename + SUFFIX);
+		long modified = source.lastModified();
+		long length = source.length();
+
+		long checksum = -1;
+		if (sidecar.isFile()) {
+			try (RandomAccessFile stamp = new RandomAccessFile(sidecar, "r")) {
+				if (stamp.length() >= CircuitBoard.BINARY_HEADER_BYTES && stamp.readInt() == CircuitBoard.BINARY_MAGIC) {
+					stamp.seek(CircuitBoard.BINARY_SOURCE_MODIFIED);
+					long cachedModified = stamp.readLong();
+					long cachedLength = stamp.readLong();
+					long cachedChecksum = stamp.readLong();
+					if (cachedLength == length && cachedModified != modified) {
+						checksum = checksum(source);
+						if (checksum == cachedChecksum) {
+							//touched but unchanged - refresh the stamp so the next load skips the checksum
+							refreshStamp(sidecar, modified);
+							cachedModified = modified;
+						}
+					}
+					if (cachedLength == length && cachedModified == modified) {
+						return new CircuitBoard(sidecar.getPath());
+					}
+				}
+			} catch (IOException | InvalidFileFormatException e) {
+				//unusable sidecar, rebuild it below
+			}
+		}
+
+		//parse first, so no sidecar is written for a board that is not valid
+		CircuitBoard board = new CircuitBoard(filename);
+		try {
+			if (checksum == -1) {
+				checksum = checksum(source);
+			}
+			board.saveBinary(sidecar.getPath(), modified, length, checksum);
+		} catch (IOException e) {
+			//the cache is only an optimization, e.g. the directory may be read-only
+		}
+		return board;
+	}
+
+	/** Record a new source modified time in an existing sidecar's header */
+	private static void refreshStamp(File sidecar, long modified) {
+		try (RandomAccessFile stamp = new RandomAccessFile(sidecar, "rw")) {
+			stamp.seek(CircuitBoard.BINARY_SOURCE_MODIFIED);
+			stamp.writeLong(modified);
+		} catch (IOException e) {
+			//the sidecar is still valid, the next load just checksums the source again
+		}
+	}
+
+	/** @return CRC32 of the given file's contents */
+	private static long checksum(File file) throws IOException {
+		try (FileChannel channel = new FileInputStream(file).getChannel()) {
+			CRC32 crc = new CRC32();
+			crc.update(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+			return crc.getValue();
+		}
+	}
+}
@@ -0,0 +1,70 @@
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * Converts circuit board files between the text (.dat) format and the
+ * binary format written by CircuitBoard.saveBinary(). Either format is
+ * accepted as input.
+ * 
+ * @author Chelsea Ma
+ */
+public class BoardConverter {
+
+	/**
+	 * @param args -b to write binary or -t to write text, then the input
+	 * file and the output file
+	 */
+	public static void main(String[] args) {
+		if (args.length != 3 || !(args[0].equals("-b") || args[0].equals("-t"))) {
+			printUsage();
+			return;
+		}
+
+		CircuitBoard board;
+		try {
+			board = new CircuitBoard(args[1]);
+		} catch (FileNotFoundException e) {
+			System.out.println("File not found: " + args[1]);
+			System.out.println(e.toString());
+			return;
+		} catch (InvalidFileFormatException e) {
+			System.out.println("Invalid file format: " + args[1]);
+			System.out.println(e.toString());
+			return;
+		}
+
+		try {
+			if (args[0].equals("-b")) {
+				board.saveBinary(args[2]);
+			} else {
+				saveText(board, args[2]);
+			}
+		} catch (IOException e) {
+			System.out.println("Unable to write: " + args[2]);
+			System.out.println(e.toString());
+		}
+	}
+
+	/** Write board in the text format read by CircuitBoard(String)
+	 * @param board board to write
+	 * @param filename file to write
+	 * @throws IOException if the file cannot be written
+	 */
+	public static void saveText(CircuitBoard board, String filename) throws IOException {
+		try (PrintWriter out = new PrintWriter(filename)) {
+			out.print(board.numRows() + " " + board.numCols() + "\n");
+			out.print(board.toString());
+			if (out.checkError()) {
+				throw new IOException("error writing " + filename);
+			}
+		}
+	}
+
+	/** Print instructions for running BoardConverter from the command line. */
+	private static void printUsage() {
+		System.out.println("Usage: java BoardConverter formatChoice inputFile outputFile");
+		System.out.println("\twhere formatChoice is either -b to write a binary board or -t to write a text board,");
+		System.out.println("\tinputFile is a text or binary board, and outputFile is the file to create.");
+	}
+}
@@ -0,0 +1,306 @@
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+import java.util.BitSet;
+import java.util.List;
+import java.util.function.IntFunction;
+import javax.swing.*;
+
+/**
+ * Paints a CircuitBoard and an optional highlighted path as one component.
+ * Only the positions inside the clip are drawn, so large boards stay cheap to
+ * repaint. Inside a JScrollPane the view can be zoomed with ctrl + mouse wheel
+ * and panned by dragging. A heatmap of how many shortest traces pass through
+ * each position, or of where a search spent its effort, can be shown behind
+ * the characters.
+ * 
+ * @author Chelsea Ma
+ */
+public class BoardView extends JComponent {
+    private static final long serialVersionUID = 1L;
+    private static final int MAX_CELL = 60;      //cell size used by the original label grid
+    private static final int MIN_CELL = 1;
+    private static final int MIN_TEXT_CELL = 12; //smaller cells are drawn as colors only
+    private static final int FIT_PIXELS = 800;   //initial board size limit
+    private static final int HEAT_LEVELS = 64;
+    /** white deepening to orange as more of the shortest traces use a position */
+    private static final Color[] HEAT_COLORS = new Color[HEAT_LEVELS + 1];
+    static {
+        for (int level = 0; level <= HEAT_LEVELS; level++) {
+            float h = (float) level / HEAT_LEVELS;
+            HEAT_COLORS[level] = new Color(255, Math.round(255 - 120 * h), Math.round(255 - 255 * h));
+        }
+    }
+
+    private final CircuitBoard board;
+    private final int rows;
+    private final int cols;
+    /** highlighted positions in row-major order */
+    private final BitSet path;
+    /** the highlighted positions as a list, so they can be cleared without a board scan */
+    private int[] shownPath = new int[0];
+    /** positions of the path being switched to, marked only while setPath runs */
+    private final BitSet incoming;
+    private int cellSize;
+    /** font for the cell characters at the current cellSize, set whenever it changes */
+    private Font cellFont;
+    /** heat level of each position in row-major order, or null if no heatmap is shown */
+    private byte[] heat;
+    /** tooltip text for a row-major position of the heatmap, or null if no heatmap is shown */
+    private IntFunction<String> heatTip;
+
+    /**
+     * @param board board to paint
+     */
+    public BoardView(CircuitBoard board) {
+        this.board = board;
+        rows = board.numRows();
+        cols = board.numCols();
+        path = new BitSet(rows * cols);
+        incoming = new BitSet(rows * cols);
+        cellSize = Math.max(MIN_CELL, Math.min(MAX_CELL, FIT_PIXELS / Math.max(1, Math.max(rows, cols))));
+        cellFont = fontFor(cellSize);
+        setOpaque(true);
+
+        MouseAdapter mouse = new MouseAdapter() {
+            private Point dragStart;
+
+            @Override
+            public void mousePressed(MouseEvent e) {
+                dragStart = e.getLocationOnScreen();
+            }
+
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                JViewport viewport = viewport();
+                if (viewport == null || dragStart == null) {
+                    return;
+                }
+                Point now = e.getLocationOnScreen();
+                Rectangle view = viewport.getViewRect();
+                view.translate(dragStart.x - now.x, dragStart.y - now.y);
+                scrollRectToVisible(view);
+                dragStart = now;
+            }
+
+            @Override
+            public void mouseWheelMoved(MouseWheelEvent e) {
+                if (e.isControlDown()) {
+                    zoom(e.getWheelRotation() < 0 ? 2.0 : 0.5, e.getPoint());
+                } else {
+                    getParent().dispatchEvent(SwingUtilities.convertMouseEvent(BoardView.this, e, getParent()));
+                }
+            }
+        };
+        addMouseListener(mouse);
+        addMouseMotionListener(mouse);
+        addMouseWheelListener(mouse);
+    }
+
+    /**
+     * Highlight the given path, or nothing if path is null. Only positions in
+     * the symmetric difference of the old and new paths are changed and
+     * repainted, so switching paths costs time in proportion to their length.
+     * @param points row, column points to highlight
+     */
+    public void setPath(List<Point> points) {
+        int[] next = new int[(points == null) ? 0 : points.size()];
+        for (int i = 0; i < next.length; i++) {
+            next[i] = points.get(i).x * cols + points.get(i).y;
+            incoming.set(next[i]);
+        }
+        for (int cell : shownPath) {
+            if (!incoming.get(cell)) {
+                path.clear(cell);
+                repaintCell(cell);
+            }
+        }
+        for (int cell : next) {
+            if (!path.get(cell)) {
+                path.set(cell);
+                repaintCell(cell);
+            }
+            incoming.clear(cell);
+        }
+        shownPath = next;
+    }
+
+    /**
+     * Tint every position by the fraction of all shortest traces passing
+     * through it, so positions that every shortest trace needs stand out.
+     * @param dag shortest traces of this view's board, or null to hide the heatmap
+     */
+    public void setHeatmap(ShortestPathDag dag) {
+        heat = null;
+        heatTip = null;
+        if (dag != null && dag.count() > 0) {
+            heat = new byte[rows * cols];
+            double total = dag.count();
+            for (int row = 0; row < rows; row++) {
+                for (int col = 0; col < cols; col++) {
+                    heat[row * cols + col] = heatLevel(dag.tracesThrough(row, col) / total);
+                }
+            }
+        }
+        if (dag != null) {
+            heatTip = cell -> dag.tracesThrough(cell / cols, cell % cols) + " of " + dag.count() + " shortest traces";
+        }
+        showHeat();
+    }
+
+    /**
+     * Tint every position by how many search states were expanded there, on
+     * a log scale since a few positions usually take most of the effort.
+     * Counts that are still being updated by a running search may be shown.
+     * @param map exploration counts of a search of this view's board, or null to hide them
+     */
+    public void setExploration(ExplorationMap map) {
+        heat = null;
+        heatTip = null;
+        if (map != null) {
+            heat = new byte[rows * cols];
+            double logMax = Math.log1p(map.maxVisits());
+            if (logMax > 0) {
+                for (int row = 0; row < rows; row++) {
+                    for (int col = 0; col < cols; col++) {
+                        heat[row * cols + col] = heatLevel(Math.log1p(map.visits(row, col)) / logMax);
+                    }
+                }
+            }
+            heatTip = cell -> map.visits(cell / cols, cell % cols) + " states expanded, "
+                    + map.pruned(cell / cols, cell % cols) + " pruned";
+        }
+        showHeat();
+    }
+
+    /** @return heat level for a fraction of the maximum, at least the first visible level if it is not 0 */
+    private static byte heatLevel(double fraction) {
+        return (byte) ((fraction > 0) ? Math.max(1, Math.round(HEAT_LEVELS * fraction)) : 0);
+    }
+
+    /** turn the tooltip on or off to match the heat shown and repaint */
+    private void showHeat() {
+        setToolTipText(heatTip == null ? null : "");
+        repaint();
+    }
+
+    @Override
+    public String getToolTipText(MouseEvent e) {
+        int row = e.getY() / cellSize;
+        int col = e.getX() / cellSize;
+        if (heatTip == null || row >= rows || col >= cols) {
+            return null;
+        }
+        return row + "," + col + ": " + heatTip.apply(row * cols + col);
+    }
+
+    /** schedule a repaint of just the given row-major position */
+    private void repaintCell(int cell) {
+        repaint((cell % cols) * cellSize, (cell / cols) * cellSize, cellSize + 1, cellSize + 1);
+    }
+
+    /**
+     * Change the cell size, keeping the board position under anchor in place
+     * @param factor amount to multiply the cell size by
+     * @param anchor point in this component's coordinates, or null for the view center
+     */
+    public void zoom(double factor, Point anchor) {
+        int newSize = (int) Math.max(MIN_CELL, Math.min(MAX_CELL, Math.round(cellSize * factor)));
+        if (newSize == cellSize) {
+            return;
+        }
+        JViewport viewport = viewport();
+        Rectangle view = (viewport != null) ? viewport.getViewRect() : getVisibleRect();
+        if (anchor == null) {
+            anchor = new Point(view.x + view.width / 2, view.y + view.height / 2);
+        }
+        double scale = (double) newSize / cellSize;
+        cellSize = newSize;
+        cellFont = fontFor(cellSize);
+        revalidate();
+        if (viewport != null) {
+            int x = (int) Math.round(anchor.x * scale) - (anchor.x - view.x);
+            int y = (int) Math.round(anchor.y * scale) - (anchor.y - view.y);
+            viewport.setViewSize(getPreferredSize());
+            viewport.setViewPosition(new Point(Math.max(0, x), Math.max(0, y)));
+        }
+        repaint();
+    }
+
+    /** @return font for the characters of cells of the given size */
+    private static Font fontFor(int size) {
+        return new Font("SansSerif", Font.BOLD, Math.max(1, size * 32 / 60));
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        return new Dimension(cols * cellSize + 1, rows * cellSize + 1);
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        Graphics2D g2 = (Graphics2D) g;
+        Rectangle clip = g2.getClipBounds();
+        if (clip == null) {
+            clip = new Rectangle(getSize());
+        }
+        g2.setColor(Color.GRAY);
+        g2.fillRect(clip.x, clip.y, clip.width, clip.height);
+
+        int firstRow = Math.max(0, clip.y / cellSize);
+        int lastRow = Math.min(rows - 1, (clip.y + clip.height) / cellSize);
+        int firstCol = Math.max(0, clip.x / cellSize);
+        int lastCol = Math.min(cols - 1, (clip.x + clip.width) / cellSize);
+        boolean text = cellSize >= MIN_TEXT_CELL;
+        int gap = (cellSize > 2) ? 1 : 0;
+
+        g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g2.setFont(cellFont);
+        FontMetrics metrics = g2.getFontMetrics();
+
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int col = firstCol; col <= lastCol; col++) {
+                char c = board.charAt(row, col);
+                boolean traced = path.get(row * cols + col) && c != '1' && c != '2';
+                int x = col * cellSize + gap;
+                int y = row * cellSize + gap;
+                int size = cellSize - gap;
+                Color background = (heat == null) ? Color.WHITE : HEAT_COLORS[heat[row * cols + col]];
+
+                if (text) {
+                    g2.setColor(background);
+                    g2.fillRect(x, y, size, size);
+                    String s = traced ? "T" : String.valueOf(c);
+                    g2.setColor(traced ? Color.RED : Color.BLACK);
+                    g2.drawString(s, x + (size - metrics.stringWidth(s)) / 2,
+                            y + (size - metrics.getHeight()) / 2 + metrics.getAscent());
+                } else {
+                    g2.setColor(traced ? Color.RED : (c == 'O') ? background : cellColor(c));
+                    g2.fillRect(x, y, size, size);
+                }
+            }
+        }
+    }
+
+    /** @return fill color for a position too small to hold its character */
+    private Color cellColor(char c) {
+        switch (c) {
+            case 'X':
+                return Color.DARK_GRAY;
+            case 'T':
+                return Color.PINK;
+            case '1':
+            case '2':
+                return Color.BLUE;
+            default:
+                return Color.WHITE;
+        }
+    }
+
+    /** @return the viewport showing this view, or null if it is not in a scroll pane */
+    private JViewport viewport() {
+        Container parent = getParent();
+        return (parent instanceof JViewport) ? (JViewport) parent : null;
+    }
+}
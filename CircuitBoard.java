@@ -1,7 +1,12 @@
 import java.awt.Point;
-import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.util.Scanner;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
 
 /**
  * Represents a 2D circuit board as read from an input file.
@@ -9,8 +14,8 @@ import java.util.Scanner;
  * @author mvail
  */
 public class CircuitBoard {
-	/** current contents of the board */
-	private char[][] board;
+	/** current contents of the board as 2-bit cell codes, 32 per long, in row-major order */
+	private long[] cells;
 	/** location of row,col for '1' */
 	private Point startingPoint;
 	/** location of row,col for '2' */
@@ -24,7 +29,16 @@ public class CircuitBoard {
 	private final char TRACE = 'T';	//part of the trace connecting 1 to 2
 	private final char START = '1';	//the starting component
 	private final char END = '2';	//the ending component
-	private final String ALLOWED_CHARS = "OXT12"; //useful for validating with indexOf
+	private static final int NOT_AN_INT = Integer.MIN_VALUE; //parseInt result for a malformed token
+
+	//binary board format: a fixed header followed by 2-bit cell codes, 32 per long, row-major
+	static final int BINARY_MAGIC = 0x89435442;	//"\u0089CTB", can never start a valid text board
+	static final int BINARY_HEADER_BYTES = 56;
+	static final int BINARY_SOURCE_MODIFIED = 32;	//source stamp used by BoardCache: modified time, length, checksum
+	private static final int CODE_OPEN = 0;
+	private static final int CODE_CLOSED = 1;
+	private static final int CODE_TRACE = 2;
+	private static final int CODE_COMPONENT = 3;	//'1' or '2', told apart by startingPoint
 
 	/** Construct a CircuitBoard from a given board input file, where the first
 	 * line contains the number of rows and columns as ints and each subsequent
@@ -37,95 +51,119 @@ public class CircuitBoard {
 	 *  'T' is not expected in input files - represents part of the trace
 	 *   connecting components 1 and 2 in the solution
 	 * 
+	 * The file is memory-mapped and validated byte by byte rather than through
+	 * a Scanner, so no String is created per cell. Files written by saveBinary()
+	 * are recognized by their magic number and loaded without any parsing.
+	 * 
 	 * @param filename
 	 * 		file containing a grid of characters
-	 * @throws FileNotFoundException if Scanner cannot open or read the file
+	 * @throws FileNotFoundException if the file cannot be opened
 	 * @throws InvalidFileFormatException for any file formatting or content issue
 	 */
 	public CircuitBoard(String filename) throws FileNotFoundException {
-		Scanner fileScan = new Scanner(new File(filename));
-		
-		if (!fileScan.hasNextLine()) {
-			fileScan.close();
+		this(mapFile(filename));
+	}
+
+	/** Construct a CircuitBoard from the contents of a text or binary board file
+	 * @param in buffer holding the file contents from index 0 to its limit
+	 * @throws InvalidFileFormatException for any file formatting or content issue
+	 */
+	CircuitBoard(ByteBuffer in) {
+		int limit = in.limit();
+
+		if (limit == 0) {
 			throw new InvalidFileFormatException("File is empty");
 		}
 
-		String firstLine = fileScan.nextLine().trim();
-		Scanner lineScan = new Scanner(firstLine);
-
-		int rows, cols;
-		try {
-			if (!lineScan.hasNextInt()) {
-				lineScan.close();
-				fileScan.close();
-				throw new InvalidFileFormatException("First line must contain an integer for rows");
+		if (limit >= 4 && in.getInt(0) == BINARY_MAGIC) {
+			if (limit < BINARY_HEADER_BYTES) {
+				throw new InvalidFileFormatException("binary board is truncated");
+			}
+			int rows = in.getInt(4);
+			int cols = in.getInt(8);
+			Point start = new Point(in.getInt(12), in.getInt(16));
+			Point end = new Point(in.getInt(20), in.getInt(24));
+			if (rows < 0 || cols < 0 || limit < BINARY_HEADER_BYTES + 8L * packedWords(rows, cols)) {
+				throw new InvalidFileFormatException("binary board is truncated");
 			}
-			rows = lineScan.nextInt();
+			if (start.x < 0 || start.x >= rows || start.y < 0 || start.y >= cols
+					|| end.x < 0 || end.x >= rows || end.y < 0 || end.y >= cols || start.equals(end)) {
+				throw new InvalidFileFormatException("no starting point");
+			}
+
+			ROWS = rows;
+			COLS = cols;
+			startingPoint = start;
+			endingPoint = end;
+			cells = new long[packedWords(ROWS, COLS)];
+			in.position(BINARY_HEADER_BYTES);
+			in.asLongBuffer().get(cells);
 
-			if (!lineScan.hasNextInt()) {
-				lineScan.close();
-				fileScan.close();
-				throw new InvalidFileFormatException("First line must contain an integer for columns");
+			//'1' and '2' must be coded exactly at the header's positions
+			if (code(start.x * COLS + start.y) != CODE_COMPONENT || code(end.x * COLS + end.y) != CODE_COMPONENT
+					|| componentCount() != 2) {
+				throw new InvalidFileFormatException("binary board has '1' or '2' away from its header positions");
 			}
-			cols = lineScan.nextInt();
-		
+			return;
+		}
 
-		//Check for extra values on first line 
-		if (lineScan.hasNext()) {
-			lineScan.close();
-			fileScan.close();
+		//parse first line as two ints without creating any tokens
+		int lineEnd = lineEnd(in, 0);
+		int pos = skipWhitespace(in, 0, lineEnd);
+		int tokenEnd = tokenEnd(in, pos, lineEnd);
+		int rows = parseInt(in, pos, tokenEnd);
+		if (pos == tokenEnd || rows == NOT_AN_INT) {
+			throw new InvalidFileFormatException("First line must contain an integer for rows");
+		}
+
+		pos = skipWhitespace(in, tokenEnd, lineEnd);
+		tokenEnd = tokenEnd(in, pos, lineEnd);
+		int cols = parseInt(in, pos, tokenEnd);
+		if (pos == tokenEnd || cols == NOT_AN_INT) {
+			throw new InvalidFileFormatException("First line must contain an integer for columns");
+		}
+
+		//check for extra values on first line
+		if (skipWhitespace(in, tokenEnd, lineEnd) < lineEnd) {
 			throw new InvalidFileFormatException("First line must only contain two integers for rows and columns");
 		}
-	}	 catch (Exception e) {
-			lineScan.close();
-			fileScan.close();
-			if (e instanceof InvalidFileFormatException) {
-				throw e;
-			}
+		if (rows < 0 || cols < 0) {
 			throw new InvalidFileFormatException("First line must contain two integers for rows and columns");
 		}
-		lineScan.close();
-		
-		ROWS = rows; 
+
+		ROWS = rows;
 		COLS = cols;
-		board = new char[ROWS][COLS];
+		cells = new long[packedWords(ROWS, COLS)];
 
-		//parse board contents
+		//parse board contents one byte at a time
 		int startCount = 0, endCount = 0;
+		pos = nextLine(in, lineEnd);
 
 		for (int row = 0; row < ROWS; row++) {
-			if (!fileScan.hasNextLine()) {
-				fileScan.close();
+			if (pos >= limit) {
 				throw new InvalidFileFormatException("missing values in a row");
 			}
-			
-			String line = fileScan.nextLine().trim();
-			Scanner rowScan = new Scanner(line);
-			
+			lineEnd = lineEnd(in, pos);
+
 			for (int col = 0; col < COLS; col++) {
-				if (!rowScan.hasNext()) {
-					rowScan.close();
-					fileScan.close();
+				pos = skipWhitespace(in, pos, lineEnd);
+				if (pos == lineEnd) {
 					throw new InvalidFileFormatException("missing values in a row");
 				}
-				
-				String token = rowScan.next();
-				if (token.length() != 1) {
-					rowScan.close();
-					fileScan.close();
-					throw new InvalidFileFormatException("invalid character '" + token + "'");
+
+				tokenEnd = tokenEnd(in, pos, lineEnd);
+				if (tokenEnd - pos != 1) {
+					throw new InvalidFileFormatException("invalid character '" + token(in, pos, tokenEnd) + "'");
 				}
-				
-				char c = token.charAt(0);
 
 				//validate character
-				if (ALLOWED_CHARS.indexOf(c) == -1) {
-					rowScan.close();
-					fileScan.close();
-					throw new InvalidFileFormatException("invalid character '" + c + "'");
+				char c = (char) (in.get(pos) & 0xFF);
+				if (c != OPEN && c != CLOSED && c != TRACE && c != START && c != END) {
+					throw new InvalidFileFormatException("invalid character '" + token(in, pos, tokenEnd) + "'");
 				}
-				
-				board[row][col] = c;
+
+				int index = row * COLS + col;
+				cells[index >>> 5] |= (long) encode(c) << ((index & 31) << 1);
 
 				//track starting and ending points
 				if (c == START) {
@@ -135,71 +173,244 @@ public class CircuitBoard {
 					endCount++;
 					endingPoint = new Point(row,col);
 				}
+				pos = tokenEnd;
 			}
 
 			//check for extra values on this row
-			if (rowScan.hasNext()) {
-				rowScan.close();
-				fileScan.close();
+			if (skipWhitespace(in, pos, lineEnd) < lineEnd) {
 				throw new InvalidFileFormatException("extra values in row " + (row + 1));
 			}
-			rowScan.close();
+			pos = nextLine(in, lineEnd);
 		}
 
 		//check for extra rows
-		if (fileScan.hasNextLine()) {
-			fileScan.close();
+		if (pos < limit) {
 			throw new InvalidFileFormatException("extra rows in file");
 		}
 
 		//validate starting and ending points
 		if (startCount > 1) {
-			fileScan.close();
 			throw new InvalidFileFormatException("more than one starting point");
 		}
 		if (endCount > 1) {
-			fileScan.close();
 			throw new InvalidFileFormatException("more than one ending point");
 		}
 		if (startCount == 0 || endCount == 0) {
-			fileScan.close();
 			throw new InvalidFileFormatException("no starting point");
 		}
-		
-		fileScan.close();
+	}
+
+	/** Map the whole input file into memory for parsing
+	 * @param filename file to read
+	 * @return read-only buffer over the file contents
+	 * @throws FileNotFoundException if the file cannot be opened
+	 */
+	private static ByteBuffer mapFile(String filename) throws FileNotFoundException {
+		try (FileChannel channel = new FileInputStream(filename).getChannel()) {
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new InvalidFileFormatException("File is too large");
+			}
+			return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		} catch (FileNotFoundException e) {
+			throw e;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/** @return index of the line terminator ending the line at pos, or the buffer limit */
+	private static int lineEnd(ByteBuffer in, int pos) {
+		int limit = in.limit();
+		while (pos < limit) {
+			byte b = in.get(pos);
+			if (b == '\n' || b == '\r') {
+				return pos;
+			}
+			pos++;
+		}
+		return limit;
+	}
+
+	/** @return index of the first byte of the line following the terminator at lineEnd */
+	private static int nextLine(ByteBuffer in, int lineEnd) {
+		if (lineEnd >= in.limit()) {
+			return lineEnd;
+		}
+		if (in.get(lineEnd) == '\r' && lineEnd + 1 < in.limit() && in.get(lineEnd + 1) == '\n') {
+			return lineEnd + 2;
+		}
+		return lineEnd + 1;
+	}
+
+	/** @return index of the first non-whitespace byte in [pos, end), or end */
+	private static int skipWhitespace(ByteBuffer in, int pos, int end) {
+		while (pos < end && isWhitespace(in.get(pos))) {
+			pos++;
+		}
+		return pos;
+	}
+
+	/** @return index just past the token starting at pos, bounded by end */
+	private static int tokenEnd(ByteBuffer in, int pos, int end) {
+		while (pos < end && !isWhitespace(in.get(pos))) {
+			pos++;
+		}
+		return pos;
+	}
+
+	/** Same ASCII whitespace as Character.isWhitespace, which Scanner splits tokens on */
+	private static boolean isWhitespace(byte b) {
+		return b == ' ' || (b >= 0x09 && b <= 0x0D) || (b >= 0x1C && b <= 0x1F);
+	}
+
+	/** Parse an optionally signed decimal int from the bytes in [pos, end)
+	 * @return the value, or NOT_AN_INT if the token is empty, malformed or overflows
+	 */
+	private static int parseInt(ByteBuffer in, int pos, int end) {
+		boolean negative = false;
+		if (pos < end && (in.get(pos) == '-' || in.get(pos) == '+')) {
+			negative = in.get(pos) == '-';
+			pos++;
+		}
+		if (pos == end) {
+			return NOT_AN_INT;
+		}
+		long value = 0;
+		for (; pos < end; pos++) {
+			byte b = in.get(pos);
+			if (b < '0' || b > '9') {
+				return NOT_AN_INT;
+			}
+			value = value * 10 + (b - '0');
+			if (value > Integer.MAX_VALUE) {
+				return NOT_AN_INT;
+			}
+		}
+		return (int) (negative ? -value : value);
+	}
+
+	/** @return the bytes in [pos, end) decoded as a String, for error messages only */
+	private static String token(ByteBuffer in, int pos, int end) {
+		byte[] bytes = new byte[end - pos];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = in.get(pos + i);
+		}
+		return new String(bytes, Charset.defaultCharset());
 	}
 	
+	/** @return number of longs holding rows * cols 2-bit cell codes */
+	private static int packedWords(int rows, int cols) {
+		return (int) (((long) rows * cols + 31) >>> 5);
+	}
+
+	/** @return 2-bit code for a board character */
+	private int encode(char c) {
+		switch (c) {
+			case OPEN:
+				return CODE_OPEN;
+			case CLOSED:
+				return CODE_CLOSED;
+			case TRACE:
+				return CODE_TRACE;
+			default:
+				return CODE_COMPONENT;
+		}
+	}
+
+	/** @return board character for a 2-bit code found at row, col */
+	private char decode(int code, int row, int col) {
+		switch (code) {
+			case CODE_OPEN:
+				return OPEN;
+			case CODE_CLOSED:
+				return CLOSED;
+			case CODE_TRACE:
+				return TRACE;
+			default:
+				return (row == startingPoint.x && col == startingPoint.y) ? START : END;
+		}
+	}
+
+	/** Write this board in the binary format recognized by CircuitBoard(String)
+	 * @param filename file to write
+	 * @throws IOException if the file cannot be written
+	 */
+	public void saveBinary(String filename) throws IOException {
+		saveBinary(filename, 0, 0, 0);
+	}
+
+	/** Write this board in binary format, stamped with the identity of the
+	 * text file it was converted from so BoardCache can tell if it is stale.
+	 * @param filename file to write
+	 * @param sourceModified last modified time of the source file
+	 * @param sourceLength length of the source file
+	 * @param sourceChecksum CRC32 of the source file contents
+	 * @throws IOException if the file cannot be written
+	 */
+	void saveBinary(String filename, long sourceModified, long sourceLength, long sourceChecksum) throws IOException {
+		ByteBuffer out = toBinary(sourceModified, sourceLength, sourceChecksum);
+		try (FileChannel channel = new FileOutputStream(filename).getChannel()) {
+			while (out.hasRemaining()) {
+				channel.write(out);
+			}
+		}
+	}
+
+	/** @return this board in binary format, ready to be read from index 0 */
+	ByteBuffer toBinary(long sourceModified, long sourceLength, long sourceChecksum) {
+		int words = packedWords(ROWS, COLS);
+		ByteBuffer out = ByteBuffer.allocate(BINARY_HEADER_BYTES + 8 * words);
+		out.putInt(BINARY_MAGIC).putInt(ROWS).putInt(COLS);
+		out.putInt(startingPoint.x).putInt(startingPoint.y);
+		out.putInt(endingPoint.x).putInt(endingPoint.y).putInt(0);
+		out.putLong(sourceModified).putLong(sourceLength).putLong(sourceChecksum);
+
+		out.asLongBuffer().put(cells);
+		out.clear();
+		return out;
+	}
+
 	/** Copy constructor - duplicates original board
 	 * 
 	 * @param original board to copy
 	 */
 	public CircuitBoard(CircuitBoard original) {
-		board = original.getBoard();
+		cells = original.cells.clone();
 		startingPoint = new Point(original.startingPoint);
 		endingPoint = new Point(original.endingPoint);
 		ROWS = original.numRows();
 		COLS = original.numCols();
 	}
 
-	/** Utility method for copy constructor
-	 * @return copy of board array */
-	private char[][] getBoard() {
-		char[][] copy = new char[board.length][board[0].length];
-		for (int row = 0; row < board.length; row++) {
-			for (int col = 0; col < board[row].length; col++) {
-				copy[row][col] = board[row][col];
+	/** @return number of cells coded as '1' or '2' */
+	private int componentCount() {
+		int count = 0;
+		int used = (ROWS * COLS) & 31; //codes in the last word, 0 if it is full
+		for (int i = 0; i < cells.length; i++) {
+			long components = cells[i] & (cells[i] >>> 1) & 0x5555555555555555L;
+			if (i == cells.length - 1 && used != 0) {
+				components &= (1L << (used << 1)) - 1;
 			}
+			count += Long.bitCount(components);
 		}
-		return copy;
+		return count;
 	}
-	
+
+	/** @return 2-bit code of the cell at row-major index */
+	private int code(int index) {
+		return (int) (cells[index >>> 5] >>> ((index & 31) << 1)) & 3;
+	}
+
 	/** Return the char at board position x,y
 	 * @param row row coordinate
 	 * @param col col coordinate
 	 * @return char at row, col
 	 */
 	public char charAt(int row, int col) {
-		return board[row][col];
+		if (row < 0 || row >= ROWS || col < 0 || col >= COLS) {
+			throw new ArrayIndexOutOfBoundsException("row " + row + ", col " + col + " is outside the board");
+		}
+		return decode(code(row * COLS + col), row, col);
 	}
 	
 	/** Return whether given board position is open
@@ -208,10 +419,10 @@ public class CircuitBoard {
 	 * @return true if position at (row, col) is open 
 	 */
 	public boolean isOpen(int row, int col) {
-		if (row < 0 || row >= board.length || col < 0 || col >= board[row].length) {
+		if (row < 0 || row >= ROWS || col < 0 || col >= COLS) {
 			return false;
 		}
-		return board[row][col] == OPEN;
+		return code(row * COLS + col) == CODE_OPEN;
 	}
 	
 	/** Set given position to be a 'T'
@@ -221,9 +432,42 @@ public class CircuitBoard {
 	 */
 	public void makeTrace(int row, int col) {
 		if (isOpen(row, col)) {
-			board[row][col] = TRACE;
+			int index = row * COLS + col;
+			cells[index >>> 5] |= (long) CODE_TRACE << ((index & 31) << 1); //OPEN is 0, so OR sets TRACE
 		} else {
-			throw new OccupiedPositionException("row " + row + ", col " + col + "contains '" + board[row][col] + "'");
+			throw new OccupiedPositionException("row " + row + ", col " + col + "contains '" + charAt(row, col) + "'");
+		}
+	}
+
+	/** Set given trace position back to 'O', undoing makeTrace, for BacktrackSearch
+	 * @param row
+	 * @param col
+	 * @throws IllegalArgumentException if given position is not a trace
+	 */
+	void clearTrace(int row, int col) {
+		if (row >= 0 && row < ROWS && col >= 0 && col < COLS && code(row * COLS + col) == CODE_TRACE) {
+			int index = row * COLS + col;
+			cells[index >>> 5] &= ~((long) CODE_TRACE << ((index & 31) << 1)); //TRACE has only the high bit set
+		} else {
+			throw new IllegalArgumentException("row " + row + ", col " + col + " is not a trace");
+		}
+	}
+
+	/** Turn an open position into an 'X' so that no trace can use it. BoardPruner
+	 * closes the positions that are on no path between '1' and '2' on its own copy
+	 * of a board; unlike makeTrace this is never undone.
+	 * @param row row of the position to close
+	 * @param col column of the position to close
+	 * @throws IllegalArgumentException if the position is not an open one on the board
+	 */
+	void close(int row, int col) {
+		if (isOpen(row, col)) {
+			int index = row * COLS + col;
+			cells[index >>> 5] |= (long) CODE_CLOSED << ((index & 31) << 1); //OPEN is 0, so OR sets CLOSED
+		} else if (row >= 0 && row < ROWS && col >= 0 && col < COLS) {
+			throw new IllegalArgumentException("row " + row + ", col " + col + " contains '" + charAt(row, col) + "'");
+		} else {
+			throw new IllegalArgumentException("row " + row + ", col " + col + " is outside the board");
 		}
 	}
 	
@@ -251,10 +495,10 @@ public class CircuitBoard {
 	 * @see java.lang.Object#toString()
 	 */
 	public String toString() {
-		StringBuilder str = new StringBuilder();
-		for (int row = 0; row < board.length; row++) {
-			for (int col = 0; col < board[row].length; col++) {
-				str.append(board[row][col] + " ");
+		StringBuilder str = new StringBuilder(ROWS * (2 * COLS + 1));
+		for (int row = 0; row < ROWS; row++) {
+			for (int col = 0; col < COLS; col++) {
+				str.append(charAt(row, col)).append(' ');
 			}
 			str.append("\n");
 		}
@@ -1,7 +1,9 @@
-
-import java.awt.Point;
+import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.List;
+import jdk.jfr.FlightRecorder;
 
 /**
  * Search for shortest paths between start and end points on a circuit board as
@@ -13,12 +15,15 @@ import java.util.ArrayList;
  */
 public class CircuitTracer {
 
+    /** supported ways of displaying the solutions */
+    private static enum Display {console, gui, moves, json, delta}
+
     /**
      * Launch the program.
      *
      * @param args three required arguments: first arg: -s for stack or -q for
-     * queue second arg: -c for console output or -g for GUI output third arg:
-     * input file name
+     * queue second arg: -c for console output or -g for GUI output last arg:
+     * input file name, with any options in between
      */
     public static void main(String[] args) {
         new CircuitTracer(args); //create this with args
@@ -28,10 +33,30 @@ public class CircuitTracer {
      * Print instructions for running CircuitTracer from the command line.
      */
     private void printUsage() {
-        System.out.println("Usage: java CircuitTracer storageChoice displayChoice inputFile ");
+        System.out.println("Usage: java CircuitTracer storageChoice displayChoice [options] inputFile ");
         System.out.println("\twhere storageChoice is either -s for a stack or -q for a queue,");
+        System.out.println("\t  or -b for a depth-first search that backtracks on a single board instead of a stack,");
+        System.out.println("\t  or -v to count the shortest paths and build each one only when it is shown,");
+        System.out.println("\t  or -1 to find just one shortest path in time linear in the board size,");
+        System.out.println("\t  or -p to race a stack and a queue search on two threads and keep the first to finish,");
+        System.out.println("\t  or -a to choose one of these from an analysis of the board (the reason goes to stderr),");
         System.out.println("\tdisplayChoice is either -c for console-only output or -g for GUI output,");
+        System.out.println("\t  or -m for a start position and move string (e.g. 0,0 R3D2) per solution,");
+        System.out.println("\t  or -j for a JSON line with the trace positions of each solution,");
+        System.out.println("\t  or -d for the first solution followed by the positions each later one changes,");
         System.out.println("\tand inputFile is the name of a file containing a layout to complete.");
+        System.out.println("\toptions:");
+        System.out.println("\t  --cache  load inputFile through a binary sidecar file (inputFile.ctb)");
+        System.out.println("\t  --save resultsFile  also write the solutions to a results file for java CircuitTracerGUI");
+        System.out.println("\t  --heatmap  also report how many shortest paths pass through each position");
+        System.out.println("\t  --jmx  publish search progress as the MXBean " + SearchMonitor.OBJECT_NAME + " (-s, -q or -p)");
+        System.out.println("\t  -k n  stop after the first n shortest paths (not -p)");
+        System.out.println("\t  --deadline ms  stop searching after ms milliseconds and keep the best solutions so far (not -v or -1)");
+        System.out.println("\t  --max-states n  stop searching after expanding n states and keep the best solutions so far (not -v or -1)");
+        System.out.println("\t  --stats  print how the search ended and when it found its first solution on stderr (-s, -q, -b, -p or --contract)");
+        System.out.println("\t  --explore csvFile  write how many search states were expanded and pruned at each position (-s, -q or -p)");
+        System.out.println("\t  --prune  close the positions that are on no path between '1' and '2' before searching");
+        System.out.println("\t  --contract  search a graph of junctions joined by corridors instead of single positions (-s or -q)");
     }
 
     /**
@@ -42,39 +67,104 @@ public class CircuitTracer {
      */
     public CircuitTracer(String[] args) {
         //validate number of command-line arguments
-        if (args.length != 3) {
+        if (args.length < 3) {
             printUsage();
             return; //exit the constructor immediately
         }
         //parse and validate storage choice
-        Storage<TraceState> stateStore;
+        Storage<TraceState> stateStore = null;
+        boolean auto = false;
+        boolean portfolio = false;
+        boolean single = false;
+        boolean backtrack = false;
         if (args[0].equals("-s")) {
             stateStore = Storage.getStackInstance();
         } else if (args[0].equals("-q")) {
             stateStore = Storage.getQueueInstance();
+        } else if (args[0].equals("-v")) {
+            stateStore = null; //count shortest paths and build each one on demand instead
+        } else if (args[0].equals("-a")) {
+            auto = true; //chosen once the board is loaded
+        } else if (args[0].equals("-p")) {
+            portfolio = true;
+        } else if (args[0].equals("-1")) {
+            single = true;
+        } else if (args[0].equals("-b")) {
+            backtrack = true;
         } else {
             printUsage();
             return;
         }
 
         //parse and validate display choice
-        boolean consoleMode;
+        Display display;
         if (args[1].equals("-c")) {
-            consoleMode = true;
+            display = Display.console;
         } else if (args[1].equals("-g")) {
-            consoleMode = false;
+            display = Display.gui;
+        } else if (args[1].equals("-m")) {
+            display = Display.moves;
+        } else if (args[1].equals("-j")) {
+            display = Display.json;
+        } else if (args[1].equals("-d")) {
+            display = Display.delta;
         } else {
             printUsage();
             return;
         }
 
+        //parse options between the display choice and the filename
+        boolean useCache = false;
+        String resultsFile = null;
+        boolean heatmap = false;
+        String explorationFile = null;
+        boolean jmx = false;
+        long deadlineMillis = 0;
+        long maxStates = Long.MAX_VALUE;
+        int maxSolutions = Integer.MAX_VALUE;
+        boolean contract = false;
+        boolean prune = false;
+        boolean stats = false;
+        for (int i = 2; i < args.length - 1; i++) {
+            if (args[i].equals("--cache")) {
+                useCache = true;
+            } else if (args[i].equals("--save") && i + 1 < args.length - 1) {
+                resultsFile = args[++i];
+            } else if (args[i].equals("--heatmap")) {
+                heatmap = true;
+            } else if (args[i].equals("--jmx")) {
+                jmx = true;
+            } else if (args[i].equals("--explore") && i + 1 < args.length - 1) {
+                explorationFile = args[++i];
+            } else if (args[i].equals("--contract")) {
+                contract = true;
+            } else if (args[i].equals("--prune")) {
+                prune = true;
+            } else if (args[i].equals("--stats")) {
+                stats = true;
+            } else if (args[i].equals("-k") && i + 1 < args.length - 1 && parsePositive(args[i + 1]) > 0) {
+                maxSolutions = (int) Math.min(parsePositive(args[++i]), Integer.MAX_VALUE);
+            } else if (args[i].equals("--deadline") && i + 1 < args.length - 1 && parsePositive(args[i + 1]) > 0) {
+                deadlineMillis = parsePositive(args[++i]);
+            } else if (args[i].equals("--max-states") && i + 1 < args.length - 1 && parsePositive(args[i + 1]) > 0) {
+                maxStates = parsePositive(args[++i]);
+            } else {
+                printUsage();
+                return;
+            }
+        }
+
+        boolean budgeted = deadlineMillis > 0 || maxStates != Long.MAX_VALUE;
+
         //get filename
-        String filename = args[2];
+        String filename = args[args.length - 1];
 
         //read circuit board
         CircuitBoard board;
+        TracerEvents.BoardLoad loadEvent = new TracerEvents.BoardLoad();
+        loadEvent.begin();
         try {
-            board = new CircuitBoard(filename);
+            board = useCache ? BoardCache.load(filename) : new CircuitBoard(filename);
         } catch (FileNotFoundException e) {
             System.out.println("File not found: " + filename);
             System.out.println(e.toString());
@@ -84,68 +174,308 @@ public class CircuitTracer {
             System.out.println(e.toString());
             return;
         }
+        loadEvent.end();
+        if (loadEvent.shouldCommit()) {
+            loadEvent.file = filename;
+            loadEvent.rows = board.numRows();
+            loadEvent.cols = board.numCols();
+            loadEvent.bytes = new File(filename).length();
+            loadEvent.cached = useCache;
+            loadEvent.commit();
+        }
 
-        //run search for best paths
-        ArrayList<TraceState> bestPaths = new ArrayList<>();
+        //search a copy without the positions no trace can use; solutions are still shown on board
+        CircuitBoard searchBoard = board;
+        boolean connected = true;
+        if (prune) {
+            BoardPruner pruner = new BoardPruner(board);
+            System.err.println(pruner);
+            searchBoard = pruner.getBoard();
+            connected = pruner.isConnected();
+        }
 
-        //initialize with starting positions adjacent to component '1'
-        Point start = board.getStartingPoint();
-        int startRow = start.x;
-        int startCol = start.y;
+        //pick the storage from the board itself
+        ShortestPathDag dag = null;
+        if (auto && connected) {
+            StrategySelector selector = new StrategySelector(searchBoard);
+            System.err.println(selector);
+            switch (selector.getStrategy()) {
+                case stack:
+                    stateStore = Storage.getStackInstance();
+                    break;
+                case queue:
+                    stateStore = Storage.getQueueInstance();
+                    break;
+                default:
+                    dag = selector.getDag();
+            }
+        }
 
-        //check all four adjacent positions
-        int[][] directions = {{-1, 0}, {1, 0}, {0, -1}, {0, 1}};
-        for (int[] dir : directions) {
-            int newRow = startRow + dir[0];
-            int newCol = startCol + dir[1];
+        //refuse a budget where no search runs that it could stop, rather than ignore it
+        boolean counted = auto ? dag != null : (stateStore == null && !portfolio && !single && !backtrack);
+        if (budgeted && (single || counted)) {
+            System.out.println("--deadline and --max-states cannot be used with " + (auto ? "-a when it chooses -v" : args[0]));
+            return;
+        }
+        if (stats && (single || counted)) {
+            System.out.println("--stats cannot be used with " + (auto ? "-a when it chooses -v" : args[0]));
+            return;
+        }
+        if (contract && (portfolio || single || backtrack || counted)) {
+            System.out.println("--contract cannot be used with " + (auto ? "-a when it chooses -v" : args[0]));
+            return;
+        }
+        if (explorationFile != null && (contract || single || backtrack || counted)) {
+            System.out.println("--explore cannot be used with " + (contract ? "--contract" : auto ? "-a when it chooses -v" : args[0]));
+            return;
+        }
+        if (jmx && connected && !portfolio && (stateStore == null || contract)) {
+            System.out.println("--jmx cannot be used with " + (contract ? "--contract" : auto ? "-a when it chooses -v" : args[0]));
+            return;
+        }
+        if (maxSolutions != Integer.MAX_VALUE && portfolio) {
+            System.out.println("-k cannot be used with -p"); //the first n would depend on which search wins
+            return;
+        }
 
-            if (board.isOpen(newRow, newCol)) {
-                stateStore.store(new TraceState(board, newRow, newCol));
+        //the GUI opens right away and runs the search in the background
+        if (display == Display.gui && stateStore != null && resultsFile == null && !contract && connected) {
+            TraceSearch search = new TraceSearch(searchBoard, stateStore);
+            search.setDeadline(deadlineMillis);
+            search.setMaxStates(maxStates);
+            search.setMaxSolutions(maxSolutions);
+            if (jmx) {
+                new SearchMonitor(search, searchBoard).register(); //stays registered while the GUI is open
             }
+            sampleFrontiers(List.of(search)); //likewise
+            CircuitTracerGUI gui = new CircuitTracerGUI(board, search);
+            gui.showHeatmap(heatmap);
+            return;
         }
 
-        //search for best paths
-        while (!stateStore.isEmpty()) {
-            TraceState currentState = stateStore.retrieve();
-
-            if (currentState.isSolution()) {
-                //solution found
-                if (bestPaths.isEmpty() || currentState.pathLength() == bestPaths.get(0).pathLength()) {
-                    //first solution or equal length
-                    bestPaths.add(currentState);
-                } else if (currentState.pathLength() < bestPaths.get(0).pathLength()) {
-                    //shorter path found
-                    bestPaths.clear();
-                    bestPaths.add(currentState);
+        //run search for best paths, or count them without searching
+        List<TraceState> bestPaths;
+        TracerEvents.Search countEvent = new TracerEvents.Search(); //-v and -1 have no search loop to emit one
+        countEvent.begin();
+        if (dag == null && ((connected && counted) || heatmap)) {
+            dag = new ShortestPathDag(searchBoard);
+        }
+        if (!connected) {
+            bestPaths = new ArrayList<TraceState>(); //known before any search
+        } else if (single) {
+            TraceState trace = ShortestTrace.find(searchBoard);
+            bestPaths = (trace == null) ? new ArrayList<TraceState>() : List.of(trace);
+            commitCountEvent(countEvent, "single", (trace == null) ? -1 : trace.pathLength(), bestPaths.size());
+        } else if (backtrack) {
+            BacktrackSearch search = new BacktrackSearch(searchBoard);
+            search.setDeadline(deadlineMillis);
+            search.setMaxStates(maxStates);
+            search.setMaxSolutions(maxSolutions);
+            bestPaths = search.run();
+            if (budgeted || stats) {
+                System.err.println(search.summary());
+            }
+        } else if (portfolio) {
+            PortfolioSearch race = new PortfolioSearch(searchBoard);
+            for (TraceSearch search : race.searches()) {
+                search.setDeadline(deadlineMillis);
+                search.setMaxStates(maxStates);
+            }
+            ExplorationMap exploration = null;
+            if (explorationFile != null) {
+                exploration = new ExplorationMap(board.numRows(), board.numCols());
+                for (TraceSearch search : race.searches()) {
+                    search.countExploration();
                 }
-            } else {
-                //generate next states
-                int currentRow = currentState.getRow();
-                int currentCol = currentState.getCol();
-
-                //try all four possible directions
-                for (int[] dir : directions) {
-                    int newRow = currentRow + dir[0];
-                    int newCol = currentCol + dir[1];
-
-                    if (currentState.isOpen(newRow, newCol)) {
-                        stateStore.store(new TraceState(currentState, newRow, newCol));
-                    }
+            }
+            List<SearchMonitor> monitors = new ArrayList<>();
+            if (jmx) {
+                //both racers at once, told apart by their storage
+                for (TraceSearch search : race.searches()) {
+                    SearchMonitor monitor = new SearchMonitor(search, searchBoard,
+                            SearchMonitor.OBJECT_NAME + ",storage=" + search.storageName());
+                    monitor.register();
+                    monitors.add(monitor);
                 }
             }
+            Runnable sampler = sampleFrontiers(race.searches());
+            bestPaths = race.run();
+            FlightRecorder.removePeriodicEvent(sampler);
+            for (SearchMonitor monitor : monitors) {
+                monitor.unregister();
+            }
+            System.err.println(race);
+            if ((budgeted || stats) && race.winner() != null) {
+                System.err.println(race.winner().summary());
+            }
+            if (explorationFile != null) {
+                //both searches' effort, the loser's up to when it was cancelled
+                for (TraceSearch search : race.searches()) {
+                    exploration.merge(search.exploration());
+                }
+                try {
+                    exploration.writeCsv(explorationFile);
+                } catch (IOException e) {
+                    System.out.println("Unable to write search heatmap: " + explorationFile);
+                    System.out.println(e.toString());
+                }
+            }
+        } else if (stateStore != null && contract) {
+            CorridorGraph graph = new CorridorGraph(searchBoard);
+            graph.setDeadline(deadlineMillis);
+            graph.setMaxStates(maxStates);
+            graph.setMaxSolutions(maxSolutions);
+            bestPaths = graph.search(stateStore.getDataStructure());
+            System.err.println(String.format("contract: %d junctions, %d corridors covering %d positions; %d states expanded",
+                    graph.junctionCount(), graph.corridorCount(), graph.corridorPositions(), graph.statesExpanded()));
+            if (budgeted || stats) {
+                System.err.println(graph.summary());
+            }
+        } else if (stateStore == null) {
+            bestPaths = dag.solutions();
+            if (bestPaths.size() > maxSolutions) {
+                bestPaths = bestPaths.subList(0, maxSolutions);
+            }
+            commitCountEvent(countEvent, "counted", dag.traceLength(), bestPaths.size());
+        } else {
+            TraceSearch search = new TraceSearch(searchBoard, stateStore);
+            search.setDeadline(deadlineMillis);
+            search.setMaxStates(maxStates);
+            search.setMaxSolutions(maxSolutions);
+            if (explorationFile != null) {
+                search.countExploration();
+            }
+            SearchMonitor monitor = jmx ? new SearchMonitor(search, searchBoard) : null;
+            if (monitor != null) {
+                monitor.register();
+            }
+            Runnable sampler = sampleFrontiers(List.of(search));
+            bestPaths = search.run();
+            FlightRecorder.removePeriodicEvent(sampler);
+            if (monitor != null) {
+                monitor.unregister();
+            }
+            if (budgeted || stats) {
+                System.err.println(search.summary());
+            }
+            if (explorationFile != null) {
+                try {
+                    search.exploration().writeCsv(explorationFile);
+                } catch (IOException e) {
+                    System.out.println("Unable to write search heatmap: " + explorationFile);
+                    System.out.println(e.toString());
+                }
+            }
+        }
+
+        //save results for browsing later without searching again
+        if (resultsFile != null) {
+            try {
+                ResultStore.write(resultsFile, board, bestPaths);
+            } catch (IOException e) {
+                System.out.println("Unable to save results: " + resultsFile);
+                System.out.println(e.toString());
+            }
         }
 
         //output results
-        if (consoleMode) {
-            for (int i = 0; i < bestPaths.size(); i++) {
-                System.out.print(bestPaths.get(i).toString());
-                if (i < bestPaths.size() - 1) {
-                    System.out.println();
+        if (display == Display.gui) {
+            CircuitTracerGUI gui = new CircuitTracerGUI(board, bestPaths);
+            gui.showHeatmap(heatmap);
+            return;
+        }
+        TracerEvents.Output outputEvent = new TracerEvents.Output();
+        outputEvent.begin();
+        try {
+            SolutionWriter writer = new SolutionWriter(board, System.out);
+            for (TraceState solution : bestPaths) {
+                switch (display) {
+                    case moves:
+                        writer.writeMoves(solution);
+                        break;
+                    case json:
+                        writer.writeJson(solution);
+                        break;
+                    case delta:
+                        writer.writeDelta(solution);
+                        break;
+                    default:
+                        writer.write(solution);
                 }
             }
-        } else {
-            //GUI mode
-            new CircuitTracerGUI(board, bestPaths);
+            if (heatmap) {
+                //counted from the shortest path graph, no solutions are tallied
+                writer.writeHeatmap(dag);
+            }
+            writer.flush();
+            outputEvent.end();
+            if (outputEvent.shouldCommit()) {
+                outputEvent.format = display.name();
+                outputEvent.solutions = bestPaths.size();
+                outputEvent.bytes = writer.bytesWritten();
+                outputEvent.commit();
+            }
+        } catch (IOException e) {
+            System.out.println("Unable to write solutions");
+            System.out.println(e.toString());
+        }
+    }
+
+    /**
+     * Records the searches' progress as a FrontierSample event each once a
+     * second, for as long as a flight recording asks for them. One hook
+     * serves all the searches of a run, so both -p racers share it.
+     *
+     * @param searches searches to sample while they are running
+     * @return the hook, to pass to FlightRecorder.removePeriodicEvent
+     */
+    private static Runnable sampleFrontiers(List<TraceSearch> searches) {
+        Runnable sampler = () -> {
+            for (TraceSearch search : searches) {
+                if (search.outcome() == TraceSearch.Outcome.running) {
+                    TracerEvents.FrontierSample sample = new TracerEvents.FrontierSample();
+                    sample.storage = search.storageName();
+                    sample.frontierSize = search.frontierSize();
+                    sample.statesExpanded = search.statesExpanded();
+                    sample.bestLength = search.bestLength();
+                    sample.commit();
+                }
+            }
+        };
+        FlightRecorder.addPeriodicEvent(TracerEvents.FrontierSample.class, sampler);
+        return sampler;
+    }
+
+    /**
+     * Ends and commits the Search event of -v or -1, which find their paths
+     * without expanding any states
+     *
+     * @param event event begun before the paths were counted or traced
+     * @param storage what found them
+     * @param optimalLength positions in a shortest trace, -1 if there is none
+     * @param solutions number of solutions found
+     */
+    private static void commitCountEvent(TracerEvents.Search event, String storage, int optimalLength, int solutions) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.storage = storage;
+            event.optimalLength = optimalLength;
+            event.solutions = solutions;
+            event.firstSolutionLength = (solutions > 0) ? optimalLength : 0;
+            event.commit();
+        }
+    }
+
+    /**
+     * @param s command-line value
+     * @return s as a positive long, or -1 if it is not one
+     */
+    private static long parsePositive(String s) {
+        try {
+            long value = Long.parseLong(s);
+            return (value > 0) ? value : -1;
+        } catch (NumberFormatException e) {
+            return -1;
         }
     }
 } // class CircuitTracer
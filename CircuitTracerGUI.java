@@ -1,5 +1,8 @@
 import java.awt.*;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
 import javax.swing.*;
 
 /**
@@ -10,19 +13,42 @@ import javax.swing.*;
  */
 public class CircuitTracerGUI extends JFrame {
     private CircuitBoard originalBoard;
-    private ArrayList<TraceState> solutions;
-    private JLabel[][] gridLabels;
+    private List<TraceState> solutions;
+    private BoardView boardView;
     private JList<String> solutionList;
-    private DefaultListModel<String> listModel;
+    private SolutionListModel listModel;
+    private TraceSearch search;
+    private JLabel statusLabel;
+    private JButton cancelButton;
+    private Timer statusTimer;
+    private JCheckBoxMenuItem heatmapItem;
+    private JCheckBoxMenuItem explorationItem;
+    /** shortest trace counts for the heatmap, built the first time it is shown */
+    private ShortestPathDag dag;
     
     /**
      * Constructor for the GUI
      * @param board the original circuit board
      * @param solutions list of all shortest path solutions
      */
-    public CircuitTracerGUI(CircuitBoard board, ArrayList<TraceState> solutions) {
+    public CircuitTracerGUI(CircuitBoard board, List<TraceState> solutions) {
+        this(board, solutions, null);
+    }
+    
+    /**
+     * Opens the GUI right away and runs the search in the background,
+     * adding each shortest solution to the list as soon as it is found.
+     * @param board the original circuit board
+     * @param search search for the shortest paths of board, not yet started
+     */
+    public CircuitTracerGUI(CircuitBoard board, TraceSearch search) {
+        this(board, new ArrayList<>(), search);
+    }
+    
+    private CircuitTracerGUI(CircuitBoard board, List<TraceState> solutions, TraceSearch search) {
         this.originalBoard = board;
         this.solutions = solutions;
+        this.search = search;
         
         setTitle("Circuit Trace Search (on onyx.boisestate.edu)");
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
@@ -34,18 +60,47 @@ public class CircuitTracerGUI extends JFrame {
         JPanel mainPanel = new JPanel(new BorderLayout());
         
         //Create the board grid
-        JPanel boardPanel = createBoardPanel();
+        JScrollPane boardPanel = createBoardPanel();
         mainPanel.add(boardPanel, BorderLayout.CENTER);
         
         //Create the solutions list
         JPanel solutionsPanel = createSolutionsPanel();
         mainPanel.add(solutionsPanel, BorderLayout.EAST);
         
+        if (search != null) {
+            mainPanel.add(createStatusPanel(), BorderLayout.SOUTH);
+        }
+        
         add(mainPanel);
         
         pack();
         setLocationRelativeTo(null);// Center on screen
         setVisible(true);
+        
+        if (search != null) {
+            startSearch();
+        }
+    }
+    
+    /**
+     * Browse a results file written by "java CircuitTracer ... --save resultsFile"
+     * without repeating the search.
+     * 
+     * @param args name of the results file
+     */
+    public static void main(String[] args) {
+        if (args.length != 1) {
+            System.out.println("Usage: java CircuitTracerGUI resultsFile");
+            System.out.println("\twhere resultsFile was written by CircuitTracer with the --save option.");
+            return;
+        }
+        try {
+            ResultStore results = new ResultStore(args[0]);
+            new CircuitTracerGUI(results.getBoard(), results);
+        } catch (IOException e) {
+            System.out.println("Unable to open results: " + args[0]);
+            System.out.println(e.toString());
+        }
     }
     
     /**
@@ -56,6 +111,13 @@ public class CircuitTracerGUI extends JFrame {
         
         //File menu
         JMenu fileMenu = new JMenu("File");
+        JMenuItem openItem = new JMenuItem("Open Results...");
+        openItem.addActionListener(e -> openResults());
+        fileMenu.add(openItem);
+        JMenuItem exportItem = new JMenuItem("Export Search Heatmap...");
+        exportItem.setEnabled(search != null);
+        exportItem.addActionListener(e -> exportExploration());
+        fileMenu.add(exportItem);
         JMenuItem quitItem = new JMenuItem("Quit");
         quitItem.addActionListener(e -> System.exit(0));
         fileMenu.add(quitItem);
@@ -66,12 +128,101 @@ public class CircuitTracerGUI extends JFrame {
         aboutItem.addActionListener(e -> showAboutDialog());
         helpMenu.add(aboutItem);
         
+        //View menu
+        JMenu viewMenu = new JMenu("View");
+        JMenuItem zoomInItem = new JMenuItem("Zoom In");
+        zoomInItem.setAccelerator(KeyStroke.getKeyStroke('=', Toolkit.getDefaultToolkit().getMenuShortcutKeyMaskEx()));
+        zoomInItem.addActionListener(e -> boardView.zoom(2.0, null));
+        viewMenu.add(zoomInItem);
+        JMenuItem zoomOutItem = new JMenuItem("Zoom Out");
+        zoomOutItem.setAccelerator(KeyStroke.getKeyStroke('-', Toolkit.getDefaultToolkit().getMenuShortcutKeyMaskEx()));
+        zoomOutItem.addActionListener(e -> boardView.zoom(0.5, null));
+        viewMenu.add(zoomOutItem);
+        viewMenu.addSeparator();
+        heatmapItem = new JCheckBoxMenuItem("Trace Heatmap");
+        heatmapItem.addActionListener(e -> showHeatmap(heatmapItem.isSelected()));
+        viewMenu.add(heatmapItem);
+        explorationItem = new JCheckBoxMenuItem("Search Heatmap");
+        explorationItem.setEnabled(search != null);
+        explorationItem.addActionListener(e -> showExploration(explorationItem.isSelected()));
+        viewMenu.add(explorationItem);
+        
         menuBar.add(fileMenu);
+        menuBar.add(viewMenu);
         menuBar.add(helpMenu);
         
         setJMenuBar(menuBar);
     }
     
+    /**
+     * Shows or hides the number of shortest traces through each position as
+     * a heatmap behind the board. The counts come from the shortest path
+     * graph, so they cover every shortest trace even while a search is running.
+     * @param show true to show the heatmap
+     */
+    public void showHeatmap(boolean show) {
+        if (show && dag == null) {
+            dag = new ShortestPathDag(originalBoard);
+        }
+        heatmapItem.setSelected(show);
+        explorationItem.setSelected(false);
+        boardView.setHeatmap(show ? dag : null);
+    }
+    
+    /**
+     * Shows or hides where the background search has expanded states, as a
+     * heatmap that follows the search while it runs.
+     * @param show true to show the heatmap
+     */
+    private void showExploration(boolean show) {
+        explorationItem.setSelected(show);
+        heatmapItem.setSelected(false);
+        boardView.setExploration(show ? search.exploration() : null);
+    }
+    
+    /**
+     * Lets the user save the background search's per-position counts as CSV
+     */
+    private void exportExploration() {
+        JFileChooser chooser = new JFileChooser(".");
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        try {
+            search.exploration().writeCsv(chooser.getSelectedFile().getPath());
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(this,
+                "Unable to export search heatmap:\n" + e.getMessage(),
+                "Export Search Heatmap",
+                JOptionPane.ERROR_MESSAGE);
+        }
+    }
+    
+    /**
+     * Lets the user pick a results file and shows it in a new window
+     */
+    private void openResults() {
+        JFileChooser chooser = new JFileChooser(".");
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        try {
+            ResultStore results = new ResultStore(chooser.getSelectedFile().getPath());
+            new CircuitTracerGUI(results.getBoard(), results);
+            if (search != null) {
+                //a closed window has no use for its search or the status refreshes
+                search.cancel();
+                statusTimer.stop();
+            }
+            dispose();
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(this,
+                "Unable to open results:\n" + e.getMessage(),
+                "Open Results",
+                JOptionPane.ERROR_MESSAGE);
+        }
+    }
+    
     /**
      * Shows the About dialog
      */
@@ -84,36 +235,20 @@ public class CircuitTracerGUI extends JFrame {
     }
     
     /**
-     * Creates the board display panel with a grid of labels
+     * Creates the board display, a single painted component in a scroll pane
      */
-    private JPanel createBoardPanel() {
-        JPanel boardPanel = new JPanel();
-        
-        int rows = originalBoard.numRows();
-        int cols = originalBoard.numCols();
+    private JScrollPane createBoardPanel() {
+        boardView = new BoardView(originalBoard);
+        JScrollPane scrollPane = new JScrollPane(boardView);
+        scrollPane.getViewport().setBackground(Color.GRAY);
+        scrollPane.getVerticalScrollBar().setUnitIncrement(16);
+        scrollPane.getHorizontalScrollBar().setUnitIncrement(16);
         
-        boardPanel.setLayout(new GridLayout(rows, cols, 1, 1));
-        boardPanel.setBackground(Color.GRAY);
-        gridLabels = new JLabel[rows][cols];
-        
-        //Create grid labels
-        for (int row = 0; row < rows; row++) {
-            for (int col = 0; col < cols; col++) {
-                char c = originalBoard.charAt(row, col);
-                JLabel label = new JLabel(String.valueOf(c), SwingConstants.CENTER);
-                label.setOpaque(true);
-                label.setBackground(Color.WHITE);
-                label.setPreferredSize(new Dimension(60, 60));
-                label.setFont(new Font("SansSerif", Font.BOLD, 32));
-                label.setBorder(BorderFactory.createLineBorder(Color.GRAY, 1));
-                label.setForeground(Color.BLACK);
-                
-                gridLabels[row][col] = label;
-                boardPanel.add(label);
-            }
-        }
+        //Don't let a big board make the window bigger than the screen
+        Dimension size = boardView.getPreferredSize();
+        scrollPane.setPreferredSize(new Dimension(Math.min(size.width, 800) + 3, Math.min(size.height, 800) + 3));
         
-        return boardPanel;
+        return scrollPane;
     }
     
     /**
@@ -122,17 +257,11 @@ public class CircuitTracerGUI extends JFrame {
     private JPanel createSolutionsPanel() {
         JPanel panel = new JPanel(new BorderLayout());
         
-        listModel = new DefaultListModel<>();
-        
-        if (solutions.isEmpty()) {
-            listModel.addElement("No solutions found");
-        } else {
-            for (int i = 0; i < solutions.size(); i++) {
-                listModel.addElement("Solution " + (i + 1));
-            }
-        }
+        //Names are produced on demand, so lazily built solution lists of any size work
+        listModel = new SolutionListModel(solutions);
         
         solutionList = new JList<>(listModel);
+        solutionList.setPrototypeCellValue("Solution " + Integer.MAX_VALUE); //fixed cell size, no scan of the model
         solutionList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
         solutionList.setFont(new Font("SansSerif", Font.PLAIN, 14));
         
@@ -153,50 +282,120 @@ public class CircuitTracerGUI extends JFrame {
         return panel;
     }
     
+    /**
+     * Creates the status bar showing search progress, with a button to stop the search
+     */
+    private JPanel createStatusPanel() {
+        JPanel panel = new JPanel(new BorderLayout());
+        panel.setBorder(BorderFactory.createEmptyBorder(2, 6, 2, 6));
+        
+        statusLabel = new JLabel("Searching...");
+        panel.add(statusLabel, BorderLayout.CENTER);
+        
+        cancelButton = new JButton("Cancel");
+        cancelButton.addActionListener(e -> {
+            search.cancel();
+            cancelButton.setEnabled(false);
+        });
+        panel.add(cancelButton, BorderLayout.EAST);
+        
+        return panel;
+    }
+    
+    /**
+     * Runs the search on a worker thread. Solutions are handed to the event
+     * dispatch thread in batches and appended to the list, and the status bar
+     * is refreshed from the search counters a few times a second.
+     */
+    private void startSearch() {
+        listModel.setEmptyText("Searching...");
+        search.countExploration();
+        
+        SwingWorker<ArrayList<TraceState>, TraceState> worker = new SwingWorker<ArrayList<TraceState>, TraceState>() {
+            @Override
+            protected ArrayList<TraceState> doInBackground() {
+                search.setListener(solution -> publish(solution));
+                return search.run();
+            }
+            
+            @Override
+            protected void process(List<TraceState> found) {
+                int oldSize = solutions.size();
+                solutions.addAll(found);
+                listModel.solutionsAdded(oldSize);
+            }
+            
+            @Override
+            protected void done() {
+                statusTimer.stop();
+                cancelButton.setEnabled(false);
+                try {
+                    get();
+                    switch (search.outcome()) {
+                        case complete:
+                        case solutionLimit:
+                            updateStatus("Finished");
+                            break;
+                        case cancelled:
+                            updateStatus("Cancelled");
+                            break;
+                        default:
+                            updateStatus("Out of budget");
+                    }
+                    statusLabel.setToolTipText(search.summary());
+                } catch (InterruptedException | ExecutionException e) {
+                    updateStatus("Search failed: " + e.getCause());
+                }
+                listModel.setEmptyText("No solutions found");
+                if (explorationItem.isSelected()) {
+                    showExploration(true);
+                }
+            }
+        };
+        
+        statusTimer = new Timer(250, e -> {
+            updateStatus("Searching");
+            if (explorationItem.isSelected()) {
+                showExploration(true);
+            }
+        });
+        statusTimer.start();
+        worker.execute();
+    }
+    
+    /**
+     * Shows the current search counters in the status bar
+     */
+    private void updateStatus(String phase) {
+        long states = search.statesExpanded();
+        double seconds = Math.max(search.elapsedNanos(), 1) / 1e9;
+        int best = search.bestLength();
+        statusLabel.setText(String.format("%s: %,d states (%,.0f/s), frontier %,d, best length %s, %,d solutions",
+            phase, states, states / seconds, search.frontierSize(),
+            (best == 0) ? "-" : String.valueOf(best), search.solutionsFound()));
+    }
+    
     /**
      * Highlights a specific solution on the board
      */
     private void highlightSolution(int solutionIndex) {
-        // First, reset all cells to original state
-        clearHighlighting();
-        
         if (solutionIndex < 0 || solutionIndex >= solutions.size()) {
+            clearHighlighting();
             return;
         }
         
         TraceState solution = solutions.get(solutionIndex);
         ArrayList<Point> path = solution.getPath();
         
-        //Highlight the path with red T's
-        for (Point p : path) {
-            int row = p.x;
-            int col = p.y;
-            gridLabels[row][col].setText("T");
-            gridLabels[row][col].setForeground(Color.RED);
-        }
-        
-        //Keep start and end with their original characters in black
-        Point start = originalBoard.getStartingPoint();
-        Point end = originalBoard.getEndingPoint();
-        gridLabels[start.x][start.y].setText("1");
-        gridLabels[start.x][start.y].setForeground(Color.BLACK);
-        gridLabels[end.x][end.y].setText("2");
-        gridLabels[end.x][end.y].setForeground(Color.BLACK);
+        //Highlight the path with red T's, start and end keep their original characters.
+        //Only positions that differ from the previous solution are touched.
+        boardView.setPath(path);
     }
     
     /**
      * Clears all highlighting and returns board to original state
      */
     private void clearHighlighting() {
-        int rows = originalBoard.numRows();
-        int cols = originalBoard.numCols();
-        
-        for (int row = 0; row < rows; row++) {
-            for (int col = 0; col < cols; col++) {
-                char c = originalBoard.charAt(row, col);
-                gridLabels[row][col].setText(String.valueOf(c));
-                gridLabels[row][col].setForeground(Color.BLACK);
-            }
-        }
+        boardView.setPath(null);
     }
-}
\ No newline at end of file
+}
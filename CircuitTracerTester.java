@@ -1,9 +1,19 @@
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PrintStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Random;
 import java.util.Scanner;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -25,6 +35,11 @@ public class CircuitTracerTester {
 		Fail
 	};
 
+	// how the solutions of a search mode must relate to those of -s -c
+	private static enum Match {
+		SameOrder, SameSet, Prefix, Member
+	};
+
 	// maximum seconds willing to wait for CircuitTracer to complete a search
 	private static final int TIMEOUT = 10;
 
@@ -39,7 +54,7 @@ public class CircuitTracerTester {
 	private static final String NO_SUCH = "noSuchFile";
 
 	// tracking number of tests and test results
-	private final int EXPECTED_TOTAL_TESTS = 86;
+	private final int EXPECTED_TOTAL_TESTS = 100;
 	private int totalTests;
 	private int passes = 0;
 	private int failures = 0;
@@ -223,6 +238,10 @@ public class CircuitTracerTester {
 					testCircuitTracerValidFile(STACK, CONSOLE, VALID_10_FILENAME, VALID_10_SOLUTIONS));
 			printTest("CircuitTracer({\"-q\", \"-c\" \"" + VALID_10_FILENAME + "\"})",
 					testCircuitTracerValidFile(QUEUE, CONSOLE, VALID_10_FILENAME, VALID_10_SOLUTIONS));
+			printTest("CircuitTracer({\"-s\", \"-c\" \"" + VALID_11_FILENAME + "\"})",
+					testCircuitTracerValidFile(STACK, CONSOLE, VALID_11_FILENAME, VALID_11_SOLUTIONS));
+			printTest("CircuitTracer({\"-q\", \"-c\" \"" + VALID_11_FILENAME + "\"})",
+					testCircuitTracerValidFile(QUEUE, CONSOLE, VALID_11_FILENAME, VALID_11_SOLUTIONS));
 		} catch (Exception e) {
 			System.out.printf("***UNABLE TO RUN/COMPLETE CIRCUITTRACER TESTS ON VALID INPUT FILES\n");
 			e.printStackTrace();
@@ -330,6 +349,34 @@ public class CircuitTracerTester {
 			e.printStackTrace();
 		}
 
+		// CircuitTracer Search Mode Tests
+		// - every other way of finding and printing the shortest paths must
+		// agree with -s -c on all of the valid input files
+		System.out.println("*******************************");
+		System.out.println("CircuitTracer Search Mode Tests");
+		System.out.println("*******************************\n");
+		try {
+			printTest("java CircuitTracer -1 -c [valid boards]", testCircuitTracerMode(Match.Member, "-1", CONSOLE));
+			printTest("java CircuitTracer -b -c [valid boards]", testCircuitTracerMode(Match.SameOrder, "-b", CONSOLE));
+			printTest("java CircuitTracer -v -c [valid boards]", testCircuitTracerMode(Match.SameSet, "-v", CONSOLE));
+			printTest("java CircuitTracer -p -c [valid boards]", testCircuitTracerMode(Match.SameSet, "-p", CONSOLE));
+			printTest("java CircuitTracer -s -c --contract [valid boards]",
+					testCircuitTracerMode(Match.SameSet, STACK, CONSOLE, "--contract"));
+			printTest("java CircuitTracer -q -c --contract [valid boards]",
+					testCircuitTracerMode(Match.SameSet, QUEUE, CONSOLE, "--contract"));
+			printTest("java CircuitTracer -s -c --prune [valid boards]",
+					testCircuitTracerMode(Match.SameOrder, STACK, CONSOLE, "--prune"));
+			printTest("java CircuitTracer -s -c -k 2 [valid boards]",
+					testCircuitTracerMode(Match.Prefix, STACK, CONSOLE, "-k", "2"));
+			printTest("java CircuitTracer -s -m [valid boards]", testCircuitTracerMode(Match.SameOrder, STACK, "-m"));
+			printTest("java CircuitTracer -s -j [valid boards]", testCircuitTracerMode(Match.SameOrder, STACK, "-j"));
+			printTest("java CircuitTracer -s -d [valid boards]", testCircuitTracerMode(Match.SameOrder, STACK, "-d"));
+			printTest("java CircuitTracer -s -c [valid boards, binary]", testCircuitTracerBinaryFile());
+		} catch (Exception e) {
+			System.out.printf("***UNABLE TO RUN/COMPLETE CIRCUITTRACER SEARCH MODE TESTS\n");
+			e.printStackTrace();
+		}
+
 		// CircuitTracer GUI Option Test
 		// - either launches GUI or exits with unsupported option message
 		System.out.println("*******************************");
@@ -932,6 +979,238 @@ public class CircuitTracerTester {
 		return result == Result.NoException;
 	}
 
+	//////////////////////////////////////
+	// XXX CircuitTracer Search Mode Tests
+	//////////////////////////////////////
+
+	/**
+	 * Confirm that CircuitTracer with the given arguments finds the same
+	 * solutions as -s -c on every valid input file, compared as boards with the
+	 * trace marked whatever the display format.
+	 * 
+	 * @param match   how the solutions must relate to those of -s -c
+	 * @param storage storage choice
+	 * @param display display choice: -c, -m, -j or -d
+	 * @param options options to place before the file name
+	 * @return true if test passes, else false
+	 */
+	private boolean testCircuitTracerMode(Match match, String storage, String display, String... options) {
+		totalTests += 1;
+		System.out.printf("Testing java CircuitTracer %s against -s -c\n",
+				String.join(" ", storage, display, String.join(" ", options)).trim());
+		boolean passed = true;
+		try {
+			for (int i = 0; i < VALID_FILENAMES.length; i++) {
+				String[] args = new String[options.length + 3];
+				args[0] = storage;
+				args[1] = display;
+				System.arraycopy(options, 0, args, 2, options.length);
+				args[args.length - 1] = VALID_FILENAMES[i];
+				passed &= compareSolutions(match, VALID_FILENAMES[i], VALID_BOARDS[i], args);
+			}
+		} catch (Exception e) {
+			passed = false;
+			e.printStackTrace(System.out);
+		}
+		System.out.println(passed ? "Output matches expected content and format."
+				: "Output does NOT match expected content and format.");
+		return passed;
+	}
+
+	/**
+	 * Confirm that CircuitTracer finds the same solutions with -s -c on a valid
+	 * input file converted to the binary board format as on the text file. The
+	 * binary copies are deleted again afterwards.
+	 * 
+	 * @return true if test passes, else false
+	 */
+	private boolean testCircuitTracerBinaryFile() {
+		totalTests += 1;
+		System.out.println("Testing java CircuitTracer -s -c on binary copies of the valid input files");
+		boolean passed = true;
+		try {
+			for (int i = 0; i < VALID_FILENAMES.length; i++) {
+				File binaryFile = new File(VALID_FILENAMES[i] + ".bin");
+				try {
+					new CircuitBoard(VALID_FILENAMES[i]).saveBinary(binaryFile.getName());
+					passed &= compareSolutions(Match.SameOrder, VALID_FILENAMES[i], VALID_BOARDS[i],
+							STACK, CONSOLE, binaryFile.getName());
+				} finally {
+					binaryFile.delete();
+				}
+			}
+		} catch (Exception e) {
+			passed = false;
+			e.printStackTrace(System.out);
+		}
+		System.out.println(passed ? "Output matches expected content and format."
+				: "Output does NOT match expected content and format.");
+		return passed;
+	}
+
+	/**
+	 * Compare the solutions of one CircuitTracer run with those of -s -c
+	 * 
+	 * @param match    how the solutions must relate to those of -s -c
+	 * @param fileName text input file for the -s -c run
+	 * @param board    contents of fileName
+	 * @param args     command line args of the run to check
+	 * @return true if the solutions relate as match requires
+	 * @throws IOException
+	 */
+	private boolean compareSolutions(Match match, String fileName, char[][] board, String... args)
+			throws IOException {
+		List<String> expected = solutionGrids(board, CONSOLE, runCircuitTracer(STACK, CONSOLE, fileName));
+		List<String> actual = solutionGrids(board, args[1], runCircuitTracer(args));
+		boolean passed;
+		switch (match) {
+			case SameOrder:
+				passed = actual.equals(expected);
+				break;
+			case SameSet:
+				List<String> sortedExpected = new ArrayList<String>(expected);
+				List<String> sortedActual = new ArrayList<String>(actual);
+				Collections.sort(sortedExpected);
+				Collections.sort(sortedActual);
+				passed = sortedActual.equals(sortedExpected);
+				break;
+			case Prefix:
+				int k = Integer.parseInt(args[Arrays.asList(args).indexOf("-k") + 1]);
+				passed = actual.equals(expected.subList(0, Math.min(k, expected.size())));
+				break;
+			default: // Member
+				passed = (expected.isEmpty()) ? actual.isEmpty()
+						: (actual.size() == 1 && expected.contains(actual.get(0)));
+		}
+		if (!passed) {
+			System.out.printf("%s: solutions fail the %s check against -s -c (%d expected, %d found)\n", String.join(" ", args),
+					match, expected.size(), actual.size());
+		}
+		return passed;
+	}
+
+	/**
+	 * Run CircuitTracer in this JVM, keeping what it writes to standard output
+	 * and dropping what it reports on standard error
+	 * 
+	 * @param args command line args to use with CircuitTracer
+	 * @return standard output of the run
+	 */
+	private String runCircuitTracer(String... args) {
+		PrintStream consoleOut = System.out;
+		PrintStream consoleErr = System.err;
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try {
+			System.setOut(new PrintStream(bytes));
+			System.setErr(new PrintStream(OutputStream.nullOutputStream()));
+			new CircuitTracer(args);
+		} finally {
+			System.setOut(consoleOut);
+			System.setErr(consoleErr);
+		}
+		return bytes.toString();
+	}
+
+	/**
+	 * Turn CircuitTracer output in any display format into one string per
+	 * solution: the rows of the board with the trace marked, one per line
+	 * 
+	 * @param board   board that was searched
+	 * @param display display choice the output was written with
+	 * @param output  standard output of CircuitTracer
+	 * @return the solutions in the order they were written
+	 * @throws IOException
+	 */
+	private List<String> solutionGrids(char[][] board, String display, String output) throws IOException {
+		List<String> grids = new ArrayList<String>();
+		if (display.equals("-d")) {
+			ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+			SolutionDeltaDecoder.decode(new BufferedReader(new StringReader(output)), decoded);
+			output = decoded.toString();
+			display = CONSOLE;
+		}
+		Scanner scan = new Scanner(output);
+		String grid = "";
+		while (scan.hasNextLine()) {
+			String line = scan.nextLine().replaceAll("\\s", "");
+			if (display.equals(CONSOLE)) { // a blank line separates solutions
+				if (line.isEmpty()) {
+					if (!grid.isEmpty()) {
+						grids.add(grid);
+					}
+					grid = "";
+				} else {
+					grid += line + "\n";
+				}
+			} else if (!line.isEmpty()) {
+				grids.add(traceGrid(board, (display.equals("-m")) ? movePositions(line) : jsonPositions(line)));
+			}
+		}
+		scan.close();
+		if (!grid.isEmpty()) {
+			grids.add(grid);
+		}
+		return grids;
+	}
+
+	/**
+	 * @param line -m output line such as "0,2R1D3L2", whitespace removed
+	 * @return row and col of every position visited, starting at '1'
+	 */
+	private List<int[]> movePositions(String line) {
+		List<int[]> positions = new ArrayList<int[]>();
+		Matcher start = Pattern.compile("^(\\d+),(\\d+)").matcher(line);
+		start.find();
+		int row = Integer.parseInt(start.group(1));
+		int col = Integer.parseInt(start.group(2));
+		positions.add(new int[] { row, col });
+		Matcher moves = Pattern.compile("([UDLR])(\\d+)").matcher(line.substring(start.end()));
+		while (moves.find()) {
+			char dir = moves.group(1).charAt(0);
+			for (int step = Integer.parseInt(moves.group(2)); step > 0; step--) {
+				row += (dir == 'D') ? 1 : (dir == 'U') ? -1 : 0;
+				col += (dir == 'R') ? 1 : (dir == 'L') ? -1 : 0;
+				positions.add(new int[] { row, col });
+			}
+		}
+		return positions;
+	}
+
+	/**
+	 * @param line -j output line, whitespace removed
+	 * @return row and col of every position of the trace
+	 */
+	private List<int[]> jsonPositions(String line) {
+		List<int[]> positions = new ArrayList<int[]>();
+		Matcher path = Pattern.compile("\\[(\\d+),(\\d+)\\]").matcher(line.substring(line.indexOf("\"path\"")));
+		while (path.find()) {
+			positions.add(new int[] { Integer.parseInt(path.group(1)), Integer.parseInt(path.group(2)) });
+		}
+		return positions;
+	}
+
+	/**
+	 * @param board     board that was searched
+	 * @param positions positions of a solution; only the open ones are traced
+	 * @return the rows of board with those positions marked 'T', one per line
+	 */
+	private String traceGrid(char[][] board, List<int[]> positions) {
+		char[][] grid = new char[board.length][];
+		for (int row = 0; row < board.length; row++) {
+			grid[row] = board[row].clone();
+		}
+		for (int[] p : positions) {
+			if (grid[p[0]][p[1]] == 'O') {
+				grid[p[0]][p[1]] = 'T';
+			}
+		}
+		String text = "";
+		for (char[] row : grid) {
+			text += new String(row) + "\n";
+		}
+		return text;
+	}
+
 	//////////////////////////////
 	// XXX CircuitTracer GUI Test
 	//////////////////////////////
@@ -1017,6 +1296,7 @@ public class CircuitTracerTester {
 		makeFile(VALID_8, VALID_8_FILENAME);
 		makeFile(VALID_9, VALID_9_FILENAME);
 		makeFile(VALID_10, VALID_10_FILENAME);
+		makeFile(VALID_11, VALID_11_FILENAME);
 		makeFile(INVALID_1, INVALID_1_FILENAME);
 		makeFile(INVALID_2, INVALID_2_FILENAME);
 		makeFile(INVALID_3, INVALID_3_FILENAME);
@@ -1244,6 +1524,20 @@ public class CircuitTracerTester {
 	private static final char[][][] VALID_10_SOLUTIONS = {
 			// none
 	};
+	private static final String VALID_11_FILENAME = "valid11.dat";
+	private static final char[][] VALID_11 = { // --contract walks corridor 0 from its far end
+			{ 'O', 'O', 'X', '2', 'O', 'X' }, { 'O', 'O', 'O', 'X', 'O', 'O' }, { 'O', 'O', 'X', 'O', 'X', 'O' },
+			{ 'O', 'O', 'O', '1', 'O', 'O' } };
+	private static final char[][][] VALID_11_SOLUTIONS = {
+			{ { 'O', 'O', 'X', '2', 'T', 'X' }, { 'O', 'O', 'O', 'X', 'T', 'T' }, { 'O', 'O', 'X', 'O', 'X', 'T' },
+					{ 'O', 'O', 'O', '1', 'T', 'T' } } };
+
+	// all valid input files and their contents, for the search mode tests
+	private static final String[] VALID_FILENAMES = { VALID_0_FILENAME, VALID_1_FILENAME, VALID_2_FILENAME,
+			VALID_3_FILENAME, VALID_4_FILENAME, VALID_5_FILENAME, VALID_6_FILENAME, VALID_7_FILENAME, VALID_8_FILENAME,
+			VALID_9_FILENAME, VALID_10_FILENAME, VALID_11_FILENAME };
+	private static final char[][][] VALID_BOARDS = { VALID_0, VALID_1, VALID_2, VALID_3, VALID_4, VALID_5, VALID_6,
+			VALID_7, VALID_8, VALID_9, VALID_10, VALID_11 };
 
 	//////////////////////////////////
 	// XXX Invalid Input File Contents
@@ -0,0 +1,413 @@
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The open positions of a CircuitBoard contracted into a graph of junctions
+ * linked by corridors, for CircuitTracer's --contract option.
+ *
+ * A junction is an open position with other than two open neighbors, or one
+ * next to '1' or '2'. Every other open position has exactly two open
+ * neighbors, so it lies on a corridor: a chain of such positions between two
+ * junctions that a path can only walk from one end to the other. A corridor
+ * is stored once, as an edge with its length and its positions in order.
+ *
+ * search() then branches only at junctions. A path that enters a corridor
+ * takes all of it, so a search state only records the corridor it took, its
+ * parent state and which junctions it has passed; no board is copied until
+ * a solution is expanded into a TraceState for output. Since every junction
+ * is entered at most once and each corridor belongs to one pair of
+ * junctions, no position is used twice. The same DistanceField bound as in
+ * TraceSearch prunes junctions from which the path can no longer be a
+ * shortest one. The solutions are the same as those of a TraceSearch with
+ * the same storage, but since a state now stands for a whole corridor they
+ * can come out in a different order. Like a TraceSearch, search() can be
+ * given a deadline and limits on the states expanded and the solutions
+ * found, checked before every state, and then returns the solutions found
+ * so far.
+ *
+ * @author Chelsea Ma
+ */
+public class CorridorGraph {
+	private static final int[][] DIRECTIONS = {{-1, 0}, {1, 0}, {0, -1}, {0, 1}};
+	private static final int NONE = -1;
+
+	private final CircuitBoard board;
+	private final int cols;
+	private final DistanceField toEnd;
+	/** length of a shortest trace, or DistanceField.UNREACHABLE */
+	private final int shortestLength;
+
+	/** row-major position of each junction */
+	private final int[] junctionCell;
+	/** junctions next to '1', in DIRECTIONS order */
+	private final int[] startJunctions;
+	/** true for the junctions next to '2' */
+	private final boolean[] endJunction;
+	/** corridors leaving each junction: adjacency[adjacencyStart[j]] up to adjacencyStart[j + 1] */
+	private final int[] adjacencyStart;
+	/** corridor index, or its complement ~index when walked from its far end */
+	private final int[] adjacency;
+
+	/** junctions at the ends of each corridor */
+	private final int[] corridorFrom;
+	private final int[] corridorTo;
+	/** positions of corridor i, from its from end, are cells[cellStart[i]] up to cells[cellStart[i + 1]] */
+	private final int[] cellStart;
+	private final int[] cells;
+
+	/** milliseconds search() may take, 0 for no limit */
+	private long deadlineMillis;
+	/** most states search() may expand */
+	private long maxStates = Long.MAX_VALUE;
+	/** search() stops after this many solutions */
+	private int maxSolutions = Integer.MAX_VALUE;
+	private String storageName = "";
+	private TraceSearch.Outcome outcome = TraceSearch.Outcome.running;
+	private long statesExpanded;
+	private int peakFrontier;
+	private int solutionsFound;
+	private long firstSolutionStates;
+	private long elapsedNanos;
+
+	/** a path through the graph, ending at a junction */
+	private static class Walk {
+		final Walk parent;
+		/** corridor taken from the parent, as in adjacency, unused for a first junction */
+		final int corridor;
+		final int junction;
+		/** number of positions on the path */
+		final int length;
+		/** junctions on the path, one bit each */
+		final long[] passed;
+
+		Walk(Walk parent, int corridor, int junction, int length, long[] passed) {
+			this.parent = parent;
+			this.corridor = corridor;
+			this.junction = junction;
+			this.length = length;
+			this.passed = passed;
+		}
+	}
+
+	/**
+	 * @param board board to contract, never modified
+	 */
+	public CorridorGraph(CircuitBoard board) {
+		this.board = board;
+		int rows = board.numRows();
+		cols = board.numCols();
+		toEnd = DistanceField.toEnd(board);
+		Point start = board.getStartingPoint();
+		Point end = board.getEndingPoint();
+		shortestLength = toEnd.traceLengthFrom(start.x, start.y);
+
+		//number the junctions in row-major order
+		int[] junctionOf = new int[rows * cols];
+		Arrays.fill(junctionOf, NONE);
+		int junctions = 0;
+		for (int row = 0; row < rows; row++) {
+			for (int col = 0; col < cols; col++) {
+				if (board.isOpen(row, col) && (openNeighbors(row, col) != 2
+						|| isNextTo(row, col, start) || isNextTo(row, col, end))) {
+					junctionOf[row * cols + col] = junctions++;
+				}
+			}
+		}
+		junctionCell = new int[junctions];
+		endJunction = new boolean[junctions];
+		for (int cell = 0; cell < junctionOf.length; cell++) {
+			if (junctionOf[cell] != NONE) {
+				junctionCell[junctionOf[cell]] = cell;
+				endJunction[junctionOf[cell]] = isNextTo(cell / cols, cell % cols, end);
+			}
+		}
+		startJunctions = neighborJunctions(start, junctionOf);
+
+		//follow each corridor from its lower numbered junction
+		IntList from = new IntList();
+		IntList to = new IntList();
+		IntList starts = new IntList();
+		IntList corridorCells = new IntList();
+		int[] degree = new int[junctions + 1];
+		for (int j = 0; j < junctions; j++) {
+			int row = junctionCell[j] / cols;
+			int col = junctionCell[j] % cols;
+			for (int[] dir : DIRECTIONS) {
+				if (!board.isOpen(row + dir[0], col + dir[1])) {
+					continue;
+				}
+				int walkedFrom = corridorCells.size();
+				int previous = junctionCell[j];
+				int cell = (row + dir[0]) * cols + col + dir[1];
+				while (junctionOf[cell] == NONE) {
+					corridorCells.add(cell);
+					int next = NONE;
+					for (int[] step : DIRECTIONS) {
+						int r = cell / cols + step[0];
+						int c = cell % cols + step[1];
+						if (board.isOpen(r, c) && r * cols + c != previous) {
+							next = r * cols + c;
+						}
+					}
+					previous = cell;
+					cell = next;
+				}
+				int other = junctionOf[cell];
+				if (j < other) {
+					from.add(j);
+					to.add(other);
+					starts.add(walkedFrom);
+					degree[j]++;
+					degree[other]++;
+				} else {
+					//a loop back to j is never on a path, and other has already kept this one
+					corridorCells.truncate(walkedFrom);
+				}
+			}
+		}
+		corridorFrom = from.toArray();
+		corridorTo = to.toArray();
+		starts.add(corridorCells.size());
+		cellStart = starts.toArray();
+		cells = corridorCells.toArray();
+
+		//each corridor leaves both of its junctions, walked backwards from the far one
+		adjacencyStart = new int[junctions + 1];
+		for (int j = 0; j < junctions; j++) {
+			adjacencyStart[j + 1] = adjacencyStart[j] + degree[j];
+		}
+		adjacency = new int[adjacencyStart[junctions]];
+		int[] filled = Arrays.copyOf(adjacencyStart, junctions);
+		for (int i = 0; i < corridorFrom.length; i++) {
+			adjacency[filled[corridorFrom[i]]++] = i;
+			adjacency[filled[corridorTo[i]]++] = ~i;
+		}
+	}
+
+	/** @return number of junctions */
+	public int junctionCount() {
+		return junctionCell.length;
+	}
+
+	/** @return number of corridors */
+	public int corridorCount() {
+		return corridorFrom.length;
+	}
+
+	/** @return number of open positions inside corridors, which search() never branches on */
+	public int corridorPositions() {
+		return cells.length;
+	}
+
+	/** @param millis longest time search() may take, from when it starts, or 0 for no limit */
+	public void setDeadline(long millis) {
+		deadlineMillis = millis;
+	}
+
+	/** @param states most states search() may expand */
+	public void setMaxStates(long states) {
+		maxStates = states;
+	}
+
+	/** @param solutions number of solutions after which search() stops */
+	public void setMaxSolutions(int solutions) {
+		maxSolutions = solutions;
+	}
+
+	/** @return number of states taken from storage by the last search() */
+	public long statesExpanded() {
+		return statesExpanded;
+	}
+
+	/** @return why the last search() stopped, or running before search() */
+	public TraceSearch.Outcome outcome() {
+		return outcome;
+	}
+
+	/** @return one line saying how the last search() ended, in the form of TraceSearch.summary() */
+	public String summary() {
+		int best = (solutionsFound > 0) ? shortestLength : 0;
+		return TraceSearch.summary("contracted " + storageName, outcome, statesExpanded, elapsedNanos, shortestLength,
+				best, firstSolutionStates, best, solutionsFound);
+	}
+
+	/** Find all shortest paths between the components of the board, or those found within the budget
+	 * @param dataStructure storage deciding the search order
+	 * @return the shortest paths found, each as a TraceState
+	 */
+	public ArrayList<TraceState> search(Storage.DataStructure dataStructure) {
+		TracerEvents.Search event = new TracerEvents.Search();
+		event.begin();
+		long startNanos = System.nanoTime();
+		storageName = dataStructure.name();
+		statesExpanded = 0;
+		peakFrontier = 0;
+		solutionsFound = 0;
+		firstSolutionStates = 0;
+		outcome = TraceSearch.Outcome.complete;
+		ArrayList<TraceState> bestPaths = search(dataStructure, startNanos + deadlineMillis * 1000000);
+		elapsedNanos = System.nanoTime() - startNanos;
+		event.end();
+		if (event.shouldCommit()) {
+			event.storage = "contracted " + storageName;
+			event.statesExpanded = statesExpanded;
+			event.peakFrontier = peakFrontier;
+			event.optimalLength = shortestLength;
+			event.solutions = bestPaths.size();
+			event.firstSolutionStates = firstSolutionStates;
+			event.firstSolutionLength = (solutionsFound > 0) ? shortestLength : 0;
+			event.commit();
+		}
+		return bestPaths;
+	}
+
+	/** the search loop of search(dataStructure)
+	 * @param deadline System.nanoTime() at which to stop, if there is a deadline
+	 */
+	private ArrayList<TraceState> search(Storage.DataStructure dataStructure, long deadline) {
+		ArrayList<TraceState> bestPaths = new ArrayList<>();
+		if (shortestLength == DistanceField.UNREACHABLE) {
+			return bestPaths;
+		}
+		Storage<Walk> stateStore = new Storage<>(dataStructure);
+		int words = (junctionCell.length + 63) >>> 6;
+		for (int j : startJunctions) {
+			if (canImprove(1, j)) {
+				long[] passed = new long[words];
+				passed[j >>> 6] |= 1L << j;
+				stateStore.store(new Walk(null, NONE, j, 1, passed));
+			}
+		}
+		while (!stateStore.isEmpty()) {
+			//the same checks, in the same order, as a TraceSearch makes before every state
+			if (solutionsFound >= maxSolutions) {
+				outcome = TraceSearch.Outcome.solutionLimit;
+				break;
+			}
+			if (statesExpanded >= maxStates) {
+				outcome = TraceSearch.Outcome.stateLimit;
+				break;
+			}
+			if (deadlineMillis > 0 && System.nanoTime() - deadline >= 0) {
+				outcome = TraceSearch.Outcome.deadline;
+				break;
+			}
+			Walk walk = stateStore.retrieve();
+			statesExpanded++;
+			if (endJunction[walk.junction]) {
+				bestPaths.add(expand(walk));
+				if (solutionsFound++ == 0) {
+					firstSolutionStates = statesExpanded;
+				}
+				continue;
+			}
+			for (int a = adjacencyStart[walk.junction]; a < adjacencyStart[walk.junction + 1]; a++) {
+				int corridor = adjacency[a];
+				int index = (corridor < 0) ? ~corridor : corridor;
+				int next = (corridor < 0) ? corridorFrom[index] : corridorTo[index];
+				if ((walk.passed[next >>> 6] & (1L << next)) != 0) {
+					continue;
+				}
+				int length = walk.length + cellStart[index + 1] - cellStart[index] + 1;
+				if (canImprove(length, next)) {
+					long[] passed = walk.passed.clone();
+					passed[next >>> 6] |= 1L << next;
+					stateStore.store(new Walk(walk, corridor, next, length, passed));
+				}
+			}
+			peakFrontier = Math.max(peakFrontier, stateStore.size());
+		}
+		return bestPaths;
+	}
+
+	/** @return true if a path of length positions ending at junction can still be a shortest trace */
+	private boolean canImprove(int length, int junction) {
+		int remaining = toEnd.distance(junctionCell[junction] / cols, junctionCell[junction] % cols);
+		return remaining != DistanceField.UNREACHABLE && length + remaining - 1 <= shortestLength;
+	}
+
+	/** @return the full path of walk, position by position, as a TraceState */
+	private TraceState expand(Walk walk) {
+		List<Walk> walks = new ArrayList<>();
+		for (Walk w = walk; w != null; w = w.parent) {
+			walks.add(w);
+		}
+		List<Point> path = new ArrayList<>(walk.length);
+		for (int i = walks.size() - 1; i >= 0; i--) {
+			Walk w = walks.get(i);
+			if (w.parent != null) { //corridor 0 walked backwards is ~0, the same as NONE
+				int index = (w.corridor < 0) ? ~w.corridor : w.corridor;
+				if (w.corridor >= 0) {
+					for (int k = cellStart[index]; k < cellStart[index + 1]; k++) {
+						path.add(point(cells[k]));
+					}
+				} else {
+					for (int k = cellStart[index + 1] - 1; k >= cellStart[index]; k--) {
+						path.add(point(cells[k]));
+					}
+				}
+			}
+			path.add(point(junctionCell[w.junction]));
+		}
+		return new TraceState(board, path);
+	}
+
+	/** @return number of open neighbors of row, col */
+	private int openNeighbors(int row, int col) {
+		int count = 0;
+		for (int[] dir : DIRECTIONS) {
+			if (board.isOpen(row + dir[0], col + dir[1])) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/** @return the junctions next to a component, in DIRECTIONS order */
+	private int[] neighborJunctions(Point component, int[] junctionOf) {
+		IntList found = new IntList();
+		for (int[] dir : DIRECTIONS) {
+			int row = component.x + dir[0];
+			int col = component.y + dir[1];
+			if (board.isOpen(row, col)) {
+				found.add(junctionOf[row * cols + col]);
+			}
+		}
+		return found.toArray();
+	}
+
+	private static boolean isNextTo(int row, int col, Point p) {
+		return Math.abs(row - p.x) + Math.abs(col - p.y) == 1;
+	}
+
+	private Point point(int cell) {
+		return new Point(cell / cols, cell % cols);
+	}
+
+	/** a growable int array */
+	private static class IntList {
+		private int[] values = new int[16];
+		private int size;
+
+		void add(int value) {
+			if (size == values.length) {
+				values = Arrays.copyOf(values, size * 2);
+			}
+			values[size++] = value;
+		}
+
+		int size() {
+			return size;
+		}
+
+		void truncate(int newSize) {
+			size = newSize;
+		}
+
+		int[] toArray() {
+			return Arrays.copyOf(values, size);
+		}
+	}
+}
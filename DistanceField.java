@@ -0,0 +1,134 @@
+import java.util.Arrays;
+
+/**
+ * Breadth-first distances from one position to every open position of a
+ * CircuitBoard reachable through open positions. The source position itself
+ * has distance 0 and does not need to be open.
+ * 
+ * The search goes one step at a time: the positions first reached at one
+ * step are listed, and the next step looks at their four neighbors, so a
+ * caller of spread() can stop it after any step.
+ * 
+ * @author Chelsea Ma
+ */
+public class DistanceField {
+	/** distance reported for positions that cannot be reached */
+	public static final int UNREACHABLE = -1;
+
+	private static final int[][] DIRECTIONS = {{-1, 0}, {1, 0}, {0, -1}, {0, 1}};
+
+	private final int rows;
+	private final int cols;
+	/** distance of every position in row-major order */
+	private final int[] distance;
+
+	/** Receives the positions a breadth-first wavefront reaches */
+	interface Wavefront {
+		/** A position first reached at a step
+		 * @param step distance of the position from the source
+		 * @param row board row of the position
+		 * @param col board column of the position
+		 * @return false to stop once this step is complete
+		 */
+		boolean reached(int step, int row, int col);
+	}
+
+	/** Compute distances from the given source position
+	 * @param board board whose open positions may be crossed
+	 * @param sourceRow row of the source position
+	 * @param sourceCol column of the source position
+	 */
+	public DistanceField(CircuitBoard board, int sourceRow, int sourceCol) {
+		rows = board.numRows();
+		cols = board.numCols();
+		distance = new int[rows * cols];
+		Arrays.fill(distance, UNREACHABLE);
+		distance[sourceRow * cols + sourceCol] = 0;
+
+		spread(board, sourceRow, sourceCol, (step, row, col) -> {
+			distance[row * cols + col] = step;
+			return true;
+		});
+	}
+
+	/** Run a breadth-first search from the source over the open positions of
+	 * board, telling sink about the positions reached at each step
+	 * @param board board whose open positions may be crossed
+	 * @param sourceRow row of the source position
+	 * @param sourceCol column of the source position
+	 * @param sink receives every newly reached position and can end the search
+	 */
+	static void spread(CircuitBoard board, int sourceRow, int sourceCol, Wavefront sink) {
+		int cols = board.numCols();
+		long[] visited = new long[(int) ((board.numRows() * (long) cols + 63) >>> 6)];
+		int source = sourceRow * cols + sourceCol;
+		visited[source >>> 6] |= 1L << source;
+
+		//positions first reached at the current step, and at the next one
+		int[] level = {source};
+		int levelSize = 1;
+		int[] next = new int[16];
+		boolean more = true;
+		for (int step = 1; levelSize > 0 && more; step++) {
+			int nextSize = 0;
+			for (int i = 0; i < levelSize; i++) {
+				int row = level[i] / cols;
+				int col = level[i] % cols;
+				for (int[] dir : DIRECTIONS) {
+					int r = row + dir[0];
+					int c = col + dir[1];
+					int cell = r * cols + c;
+					if (board.isOpen(r, c) && (visited[cell >>> 6] & (1L << cell)) == 0) {
+						visited[cell >>> 6] |= 1L << cell;
+						if (nextSize == next.length) {
+							next = Arrays.copyOf(next, nextSize * 2);
+						}
+						next[nextSize++] = cell;
+						more &= sink.reached(step, r, c);
+					}
+				}
+			}
+
+			int[] swap = level;
+			level = next;
+			next = swap;
+			levelSize = nextSize;
+		}
+	}
+
+	/** @return distances from the ending component '2' of board */
+	public static DistanceField toEnd(CircuitBoard board) {
+		return new DistanceField(board, board.getEndingPoint().x, board.getEndingPoint().y);
+	}
+
+	/** @return distances from the starting component '1' of board */
+	public static DistanceField fromStart(CircuitBoard board) {
+		return new DistanceField(board, board.getStartingPoint().x, board.getStartingPoint().y);
+	}
+
+	/** @return number of steps from the source to row, col or UNREACHABLE */
+	public int distance(int row, int col) {
+		if (row < 0 || row >= rows || col < 0 || col >= cols) {
+			return UNREACHABLE;
+		}
+		return distance[row * cols + col];
+	}
+
+	/** Length of the shortest trace that leaves the component at row, col and
+	 * ends next to this field's source, i.e. the least distance among the open
+	 * neighbors of row, col.
+	 * @param row row of a component
+	 * @param col column of a component
+	 * @return number of trace positions, or UNREACHABLE if there is no trace
+	 */
+	public int traceLengthFrom(int row, int col) {
+		int best = UNREACHABLE;
+		for (int[] dir : DIRECTIONS) {
+			int d = distance(row + dir[0], col + dir[1]);
+			if (d > 0 && (best == UNREACHABLE || d < best)) {
+				best = d;
+			}
+		}
+		return best;
+	}
+}
@@ -0,0 +1,97 @@
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+
+/**
+ * Counts, for each position of a board, how many search states were expanded
+ * with their head there and how many would-be states ending there were pruned.
+ * Each searching thread keeps its own map of plain int counters, so counting
+ * needs no synchronization; maps of the same board can be merged afterwards.
+ *
+ * @author Chelsea Ma
+ */
+public class ExplorationMap {
+	private final int rows;
+	private final int cols;
+	private final int[] visits;
+	private final int[] pruned;
+
+	/**
+	 * @param rows number of board rows
+	 * @param cols number of board columns
+	 */
+	public ExplorationMap(int rows, int cols) {
+		this.rows = rows;
+		this.cols = cols;
+		visits = new int[rows * cols];
+		pruned = new int[rows * cols];
+	}
+
+	/** count a state expanded with its head at row, col */
+	void visit(int row, int col) {
+		visits[row * cols + col]++;
+	}
+
+	/** count a state that was not created because its head at row, col could not lead to a shortest path */
+	void prune(int row, int col) {
+		pruned[row * cols + col]++;
+	}
+
+	/** @return number of states expanded with their head at row, col */
+	public int visits(int row, int col) {
+		return visits[row * cols + col];
+	}
+
+	/** @return number of states pruned with their head at row, col */
+	public int pruned(int row, int col) {
+		return pruned[row * cols + col];
+	}
+
+	/** @return the largest visit count of any position */
+	public int maxVisits() {
+		int max = 0;
+		for (int v : visits) {
+			max = Math.max(max, v);
+		}
+		return max;
+	}
+
+	/** @return number of board rows */
+	public int numRows() {
+		return rows;
+	}
+
+	/** @return number of board columns */
+	public int numCols() {
+		return cols;
+	}
+
+	/** Add another map's counts to this one
+	 * @param other counts for a board of the same size
+	 */
+	public void merge(ExplorationMap other) {
+		if (other.rows != rows || other.cols != cols) {
+			throw new IllegalArgumentException("board sizes differ");
+		}
+		for (int i = 0; i < visits.length; i++) {
+			visits[i] += other.visits[i];
+			pruned[i] += other.pruned[i];
+		}
+	}
+
+	/** Write the counts as CSV with a "row,col,visits,pruned" header and a
+	 * line for each position that was visited or pruned at least once
+	 * @param filename file to write
+	 * @throws IOException if the file cannot be written
+	 */
+	public void writeCsv(String filename) throws IOException {
+		try (BufferedWriter out = new BufferedWriter(new FileWriter(filename))) {
+			out.write("row,col,visits,pruned\n");
+			for (int i = 0; i < visits.length; i++) {
+				if (visits[i] != 0 || pruned[i] != 0) {
+					out.write(i / cols + "," + i % cols + "," + visits[i] + "," + pruned[i] + "\n");
+				}
+			}
+		}
+	}
+}
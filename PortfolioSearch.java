@@ -0,0 +1,99 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Races a stack search and a queue search of the same board on two threads.
+ * The first to finish provides the solutions and the other is cancelled, so
+ * a board that is slow for one storage is answered at the speed of the other.
+ * A search that fails, e.g. a queue running out of memory, simply loses.
+ * The board is only read, so both searches share it.
+ *
+ * Which search wins can vary from run to run, and with it the order of the
+ * solutions; the set of shortest solutions is always the same.
+ *
+ * @author Chelsea Ma
+ */
+public class PortfolioSearch {
+	private final TraceSearch[] searches;
+	private TraceSearch winner;
+
+	/**
+	 * @param board board to search, never modified
+	 */
+	public PortfolioSearch(CircuitBoard board) {
+		searches = new TraceSearch[] {
+			new TraceSearch(board, Storage.getStackInstance()),
+			new TraceSearch(board, Storage.getQueueInstance())
+		};
+	}
+
+	/** @return the competing searches, stack first */
+	public List<TraceSearch> searches() {
+		return List.of(searches);
+	}
+
+	/** Run both searches until one finishes and cancel the other
+	 * @return all shortest solutions from the search that finished first
+	 * @throws IllegalStateException if both searches fail
+	 */
+	public ArrayList<TraceState> run() {
+		AtomicReferenceArray<ArrayList<TraceState>> results = new AtomicReferenceArray<>(searches.length);
+		List<Callable<Integer>> tasks = new ArrayList<>();
+		for (int i = 0; i < searches.length; i++) {
+			int index = i;
+			tasks.add(() -> {
+				Thread.currentThread().setName("search-" + searches[index].storageName());
+				results.set(index, searches[index].run());
+				return index;
+			});
+		}
+
+		ExecutorService pool = Executors.newFixedThreadPool(searches.length);
+		try {
+			int first = pool.invokeAny(tasks);
+			winner = searches[first];
+			return results.get(first);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return new ArrayList<>();
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("every search failed", e.getCause());
+		} finally {
+			cancel();
+			pool.shutdown();
+		}
+	}
+
+	/** Stop both searches */
+	public void cancel() {
+		for (TraceSearch search : searches) {
+			search.cancel();
+		}
+	}
+
+	/** @return the search whose solutions run() returned, or null if none has finished */
+	public TraceSearch winner() {
+		return winner;
+	}
+
+	/** @return one line saying which search won and how far the other got */
+	@Override
+	public String toString() {
+		if (winner == null) {
+			return "portfolio: no search finished";
+		}
+		StringBuilder s = new StringBuilder(String.format("portfolio: %s finished first in %.1f ms after %d states",
+				winner.storageName(), winner.elapsedNanos() / 1e6, winner.statesExpanded()));
+		for (TraceSearch search : searches) {
+			if (search != winner) {
+				s.append(String.format("; %s stopped after %d states", search.storageName(), search.statesExpanded()));
+			}
+		}
+		return s.toString();
+	}
+}
@@ -0,0 +1,163 @@
+import java.awt.Point;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A read-only list of solutions backed by a memory-mapped results file, so a
+ * solved board can be browsed again without repeating the search. Any
+ * solution is decoded on demand in time proportional to its own length.
+ * 
+ * File layout, big-endian:
+ *  header - magic number, solution count, length of the embedded board
+ *  board - the searched CircuitBoard in binary format, padded to 8 bytes
+ *  index - count + 1 longs, the file offset of each solution and of the end
+ *  solutions - trace length, then one 2-bit move (up, down, left, right)
+ *   per trace position starting from '1', packed 4 to a byte
+ * 
+ * @author Chelsea Ma
+ */
+public class ResultStore extends AbstractList<TraceState> {
+	private static final int MAGIC = 0x89435452;	//"\u0089CTR"
+	private static final int HEADER_BYTES = 16;
+	private static final int[][] MOVES = {{-1, 0}, {1, 0}, {0, -1}, {0, 1}};
+
+	private final ByteBuffer file;
+	private final CircuitBoard board;
+	private final int count;
+	private final int indexStart;
+
+	/** Open a results file written by write()
+	 * @param filename results file
+	 * @throws IOException if the file cannot be read or is not a results file
+	 */
+	public ResultStore(String filename) throws IOException {
+		try (FileChannel channel = new FileInputStream(filename).getChannel()) {
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new IOException("results file is too large to map: " + filename);
+			}
+			file = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		if (file.limit() < HEADER_BYTES || file.getInt(0) != MAGIC) {
+			throw new IOException("not a results file: " + filename);
+		}
+		count = file.getInt(4);
+		int boardBytes = file.getInt(8);
+		if (boardBytes < 0 || boardBytes > file.limit() - HEADER_BYTES) {
+			throw new IOException("damaged board in results file: " + filename);
+		}
+		ByteBuffer boardData = file.duplicate();
+		boardData.position(HEADER_BYTES).limit(HEADER_BYTES + boardBytes);
+		try {
+			board = new CircuitBoard(boardData.slice());
+		} catch (InvalidFileFormatException e) {
+			throw new IOException("damaged board in results file: " + filename, e);
+		}
+		indexStart = HEADER_BYTES + padded(boardBytes);
+		if (count < 0 || file.limit() < indexStart + 8L * (count + 1)) {
+			throw new IOException("results file is truncated: " + filename);
+		}
+	}
+
+	/** @return the board the stored solutions were traced on */
+	public CircuitBoard getBoard() {
+		return new CircuitBoard(board);
+	}
+
+	@Override
+	public int size() {
+		return count;
+	}
+
+	/** Decode solution i from the mapped file
+	 * @param i index of the solution
+	 * @return the solution as a TraceState
+	 */
+	@Override
+	public TraceState get(int i) {
+		if (i < 0 || i >= count) {
+			throw new IndexOutOfBoundsException("solution " + i + " of " + count);
+		}
+		int offset = (int) file.getLong(indexStart + 8 * i);
+		int length = file.getInt(offset);
+		ArrayList<Point> path = new ArrayList<Point>(length);
+		Point p = board.getStartingPoint();
+		for (int step = 0; step < length; step++) {
+			int move = (file.get(offset + 4 + (step >>> 2)) >>> ((step & 3) << 1)) & 3;
+			p = new Point(p.x + MOVES[move][0], p.y + MOVES[move][1]);
+			path.add(p);
+		}
+		return new TraceState(board, path);
+	}
+
+	/** Write solutions and the board they were traced on to a results file
+	 * @param filename file to write
+	 * @param board board that was searched
+	 * @param solutions solutions to store, in order
+	 * @throws IOException if the file cannot be written, or would be too large for the constructor to map
+	 */
+	public static void write(String filename, CircuitBoard board, List<TraceState> solutions) throws IOException {
+		ByteBuffer boardData = board.toBinary(0, 0, 0);
+		int boardBytes = boardData.remaining();
+		long size = HEADER_BYTES + padded(boardBytes) + 8L * (solutions.size() + 1);
+		for (TraceState solution : solutions) {
+			size += recordBytes(solution.pathLength());
+		}
+		if (size > Integer.MAX_VALUE) {
+			throw new IOException("results file would be too large to map (" + size + " bytes): " + filename);
+		}
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filename), 1 << 16))) {
+			out.writeInt(MAGIC);
+			out.writeInt(solutions.size());
+			out.writeInt(boardBytes);
+			out.writeInt(0);
+			out.write(boardData.array(), 0, boardBytes);
+			out.write(new byte[padded(boardBytes) - boardBytes]);
+
+			//index of record offsets, computable up front since records have known sizes
+			long offset = HEADER_BYTES + padded(boardBytes) + 8L * (solutions.size() + 1);
+			for (TraceState solution : solutions) {
+				out.writeLong(offset);
+				offset += recordBytes(solution.pathLength());
+			}
+			out.writeLong(offset);
+
+			for (TraceState solution : solutions) {
+				List<Point> path = solution.getPath();
+				out.writeInt(path.size());
+				Point previous = board.getStartingPoint();
+				int packed = 0;
+				for (int step = 0; step < path.size(); step++) {
+					Point p = path.get(step);
+					int move = (p.x < previous.x) ? 0 : (p.x > previous.x) ? 1 : (p.y < previous.y) ? 2 : 3;
+					packed |= move << ((step & 3) << 1);
+					if ((step & 3) == 3) {
+						out.write(packed);
+						packed = 0;
+					}
+					previous = p;
+				}
+				if ((path.size() & 3) != 0) {
+					out.write(packed);
+				}
+			}
+		}
+	}
+
+	/** @return bytes used by a stored solution with the given trace length */
+	private static int recordBytes(int length) {
+		return 4 + (length + 3) / 4;
+	}
+
+	/** @return n rounded up to a multiple of 8 */
+	private static int padded(int n) {
+		return (n + 7) & ~7;
+	}
+}
@@ -0,0 +1,142 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Publishes a TraceSearch's progress counters as a platform MXBean named
+ * "CircuitTracer:type=Search" for as long as it is registered, or with the
+ * storage added to the name when several searches run at once. Attribute
+ * reads only look at the search's volatile counters, so watching a search
+ * does not slow it down.
+ *
+ * @author Chelsea Ma
+ */
+public class SearchMonitor implements SearchMonitorMXBean {
+	/** name the monitor is registered under */
+	public static final String OBJECT_NAME = "CircuitTracer:type=Search";
+
+	private final TraceSearch search;
+	private final CircuitBoard board;
+	private final ObjectName name;
+
+	/**
+	 * @param search search to publish
+	 * @param board board being searched, used to format dumped paths
+	 */
+	public SearchMonitor(TraceSearch search, CircuitBoard board) {
+		this(search, board, OBJECT_NAME);
+	}
+
+	/**
+	 * @param search search to publish
+	 * @param board board being searched, used to format dumped paths
+	 * @param objectName name to register under, e.g. OBJECT_NAME + ",storage=stack"
+	 */
+	public SearchMonitor(TraceSearch search, CircuitBoard board, String objectName) {
+		this.search = search;
+		this.board = board;
+		try {
+			name = new ObjectName(objectName);
+		} catch (JMException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/** Register with the platform MBean server, replacing any earlier search monitor */
+	public void register() {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try {
+			if (server.isRegistered(name)) {
+				server.unregisterMBean(name);
+			}
+			server.registerMBean(this, name);
+		} catch (JMException e) {
+			throw new IllegalStateException("Unable to register " + name, e);
+		}
+	}
+
+	/** Unregister from the platform MBean server */
+	public void unregister() {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try {
+			if (server.isRegistered(name)) {
+				server.unregisterMBean(name);
+			}
+		} catch (JMException e) {
+			throw new IllegalStateException("Unable to unregister " + name, e);
+		}
+	}
+
+	@Override
+	public String getStorage() {
+		return search.storageName();
+	}
+
+	@Override
+	public boolean isRunning() {
+		return search.isRunning() && !search.isCancelled();
+	}
+
+	@Override
+	public long getStatesExpanded() {
+		return search.statesExpanded();
+	}
+
+	@Override
+	public double getStatesPerSecond() {
+		long nanos = search.elapsedNanos();
+		return (nanos == 0) ? 0 : search.statesExpanded() * 1e9 / nanos;
+	}
+
+	@Override
+	public int getFrontierSize() {
+		return search.frontierSize();
+	}
+
+	@Override
+	public int getPeakFrontier() {
+		return search.peakFrontier();
+	}
+
+	@Override
+	public int getBestLength() {
+		return search.bestLength();
+	}
+
+	@Override
+	public int getShortestLength() {
+		return search.shortestLength();
+	}
+
+	@Override
+	public int getSolutionsFound() {
+		return search.solutionsFound();
+	}
+
+	@Override
+	public void cancel() {
+		search.cancel();
+	}
+
+	@Override
+	public String[] dumpBestPaths(int max) {
+		List<TraceState> found = search.solutionsSoFar(max);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try {
+			SolutionWriter writer = new SolutionWriter(board, bytes);
+			for (TraceState solution : found) {
+				writer.writeMoves(solution);
+			}
+			writer.flush();
+		} catch (IOException e) {
+			throw new IllegalStateException(e); //a ByteArrayOutputStream does not throw
+		}
+		String text = bytes.toString(StandardCharsets.US_ASCII);
+		return text.isEmpty() ? new String[0] : text.split("\n");
+	}
+}
@@ -0,0 +1,44 @@
+/**
+ * Management interface of a running TraceSearch, registered by CircuitTracer
+ * with the --jmx option so a search can be watched and stopped from JConsole
+ * or any other JMX client.
+ *
+ * @author Chelsea Ma
+ */
+public interface SearchMonitorMXBean {
+	/** @return "stack" or "queue" */
+	String getStorage();
+
+	/** @return true while the search is running and has not been cancelled */
+	boolean isRunning();
+
+	/** @return number of states taken from storage so far */
+	long getStatesExpanded();
+
+	/** @return average number of states taken from storage per second */
+	double getStatesPerSecond();
+
+	/** @return number of states waiting in storage */
+	int getFrontierSize();
+
+	/** @return largest number of states that have been waiting in storage at once */
+	int getPeakFrontier();
+
+	/** @return length of the best solution found so far, or 0 if there is none yet */
+	int getBestLength();
+
+	/** @return length of a shortest trace, -1 if the components cannot be connected */
+	int getShortestLength();
+
+	/** @return number of solutions found that are known to be optimal */
+	int getSolutionsFound();
+
+	/** Stop the search; the solutions found so far are still written */
+	void cancel();
+
+	/**
+	 * @param max largest number of solutions to return
+	 * @return the first max optimal solutions found so far in the -m moves format
+	 */
+	String[] dumpBestPaths(int max);
+}
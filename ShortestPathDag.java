@@ -0,0 +1,207 @@
+import java.awt.Point;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The graph of all shortest traces between the components of a CircuitBoard.
+ * A position lies on some shortest trace exactly when its distance from '1'
+ * plus its distance from '2' is one more than the shortest trace length. For
+ * those positions this class counts the shortest partial traces from '1'
+ * (forward) and to '2' (backward) in O(rows * cols) with dynamic programming.
+ * 
+ * The backward counts let solution k of a fixed enumeration order be built
+ * directly ("unranked") by walking from '1' and skipping whole subtrees of
+ * smaller-ranked traces, so the solutions can be browsed without ever being
+ * enumerated. Counts saturate at Long.MAX_VALUE rather than overflow.
+ * 
+ * @author Chelsea Ma
+ */
+public class ShortestPathDag {
+	private static final int[][] DIRECTIONS = {{-1, 0}, {1, 0}, {0, -1}, {0, 1}};
+
+	private final CircuitBoard board;
+	private final int rows;
+	private final int cols;
+	private final DistanceField fromStart;
+	private final DistanceField toEnd;
+	/** number of positions in a shortest trace, or UNREACHABLE */
+	private final int length;
+	/** shortest partial traces from '1' ending at each position, row-major */
+	private final long[] forward;
+	/** shortest partial traces from each position to '2', row-major */
+	private final long[] backward;
+	private final long count;
+	/** shortest partial traces from '1' over all positions, and the most ending at one distance from '1' */
+	private long partialTraces;
+	private long widestLevel;
+
+	/**
+	 * @param board board whose shortest traces are counted
+	 */
+	public ShortestPathDag(CircuitBoard board) {
+		this.board = board;
+		rows = board.numRows();
+		cols = board.numCols();
+		fromStart = DistanceField.fromStart(board);
+		toEnd = DistanceField.toEnd(board);
+		Point start = board.getStartingPoint();
+		length = toEnd.traceLengthFrom(start.x, start.y);
+		forward = new long[rows * cols];
+		backward = new long[rows * cols];
+		if (length == DistanceField.UNREACHABLE) {
+			count = 0;
+			return;
+		}
+
+		//bucket the positions of the graph by their distance from '1'
+		int[] levelStart = new int[length + 2];
+		for (int row = 0; row < rows; row++) {
+			for (int col = 0; col < cols; col++) {
+				if (onDag(row, col)) {
+					levelStart[fromStart.distance(row, col) + 1]++;
+				}
+			}
+		}
+		for (int level = 1; level <= length + 1; level++) {
+			levelStart[level] += levelStart[level - 1];
+		}
+		int[] byLevel = new int[levelStart[length + 1]];
+		int[] fill = levelStart.clone();
+		for (int row = 0; row < rows; row++) {
+			for (int col = 0; col < cols; col++) {
+				if (onDag(row, col)) {
+					byLevel[fill[fromStart.distance(row, col)]++] = row * cols + col;
+				}
+			}
+		}
+
+		//forward counts level by level away from '1', backward counts toward it
+		for (int level = 1; level <= length; level++) {
+			long width = 0;
+			for (int i = levelStart[level]; i < levelStart[level + 1]; i++) {
+				int cell = byLevel[i];
+				forward[cell] = (level == 1) ? 1 : sumNeighbors(forward, cell, -1);
+				width = saturatedAdd(width, forward[cell]);
+			}
+			partialTraces = saturatedAdd(partialTraces, width);
+			widestLevel = Math.max(widestLevel, width);
+		}
+		long total = 0;
+		for (int i = byLevel.length - 1; i >= 0; i--) {
+			int cell = byLevel[i];
+			backward[cell] = (toEnd.distance(cell / cols, cell % cols) == 1) ? 1 : sumNeighbors(backward, cell, 1);
+			if (fromStart.distance(cell / cols, cell % cols) == 1) {
+				total = saturatedAdd(total, backward[cell]);
+			}
+		}
+		count = total;
+	}
+
+	/** @return true if row, col is on at least one shortest trace */
+	public boolean onDag(int row, int col) {
+		int fromOne = fromStart.distance(row, col);
+		int fromTwo = toEnd.distance(row, col);
+		return fromOne > 0 && fromTwo > 0 && fromOne + fromTwo == length + 1;
+	}
+
+	/** @return sum of counts over the graph neighbors of cell one level nearer '1' (step -1) or '2' (step 1) */
+	private long sumNeighbors(long[] counts, int cell, int step) {
+		int row = cell / cols;
+		int col = cell % cols;
+		int level = fromStart.distance(row, col) + step;
+		long sum = 0;
+		for (int[] dir : DIRECTIONS) {
+			int r = row + dir[0];
+			int c = col + dir[1];
+			if (fromStart.distance(r, c) == level && onDag(r, c)) {
+				sum = saturatedAdd(sum, counts[r * cols + c]);
+			}
+		}
+		return sum;
+	}
+
+	private static long saturatedAdd(long a, long b) {
+		long sum = a + b;
+		return (sum < 0) ? Long.MAX_VALUE : sum;
+	}
+
+	/** @return number of positions in a shortest trace, or DistanceField.UNREACHABLE if there is none */
+	public int traceLength() {
+		return length;
+	}
+
+	/** @return number of shortest traces, saturated at Long.MAX_VALUE */
+	public long count() {
+		return count;
+	}
+
+	/** @return number of shortest partial traces from '1' to any position, which is
+	 * the number of states a search pruned by distance stores, saturated at Long.MAX_VALUE */
+	public long partialTraces() {
+		return partialTraces;
+	}
+
+	/** @return the most shortest partial traces of one length, which is the
+	 * largest frontier of a queue search pruned by distance, saturated at Long.MAX_VALUE */
+	public long widestLevel() {
+		return widestLevel;
+	}
+
+	/** @return number of shortest traces passing through row, col, saturated at Long.MAX_VALUE */
+	public long tracesThrough(int row, int col) {
+		if (!onDag(row, col)) {
+			return 0;
+		}
+		long f = forward[row * cols + col];
+		long b = backward[row * cols + col];
+		return (f != 0 && b > Long.MAX_VALUE / f) ? Long.MAX_VALUE : f * b;
+	}
+
+	/** Build shortest trace number rank in a fixed order without enumerating
+	 * the traces before it. Traces are ordered by their first differing step,
+	 * trying up, down, left and right in that order.
+	 * @param rank index of the trace, 0 <= rank < count()
+	 * @return the trace as a TraceState
+	 */
+	public TraceState unrank(long rank) {
+		if (rank < 0 || rank >= count) {
+			throw new IndexOutOfBoundsException("trace " + rank + " of " + count);
+		}
+		ArrayList<Point> path = new ArrayList<Point>(length);
+		Point p = board.getStartingPoint();
+		for (int level = 1; level <= length; level++) {
+			for (int[] dir : DIRECTIONS) {
+				int r = p.x + dir[0];
+				int c = p.y + dir[1];
+				if (fromStart.distance(r, c) != level || !onDag(r, c)) {
+					continue;
+				}
+				long below = backward[r * cols + c];
+				if (rank < below) {
+					p = new Point(r, c);
+					break;
+				}
+				rank -= below;
+			}
+			path.add(p);
+		}
+		return new TraceState(board, path);
+	}
+
+	/** @return the shortest traces as a read-only list that builds each one on demand,
+	 * limited to Integer.MAX_VALUE entries */
+	public List<TraceState> solutions() {
+		return new AbstractList<TraceState>() {
+			@Override
+			public TraceState get(int index) {
+				return unrank(index);
+			}
+
+			@Override
+			public int size() {
+				return (int) Math.min(count, Integer.MAX_VALUE);
+			}
+		};
+	}
+}
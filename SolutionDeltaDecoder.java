@@ -0,0 +1,100 @@
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.util.ArrayList;
+
+/**
+ * Expands a delta-encoded solution stream, as written by
+ * "java CircuitTracer storageChoice -d inputFile", back into the console
+ * format: every solution as a full grid with a blank line between them.
+ * 
+ * @author Chelsea Ma
+ */
+public class SolutionDeltaDecoder {
+
+	/**
+	 * @param args optional delta file name, standard input is read if absent
+	 */
+	public static void main(String[] args) {
+		if (args.length > 1) {
+			System.out.println("Usage: java SolutionDeltaDecoder [deltaFile]");
+			System.out.println("\twhere deltaFile was written by CircuitTracer with the -d display choice;");
+			System.out.println("\tstandard input is read if no file is given.");
+			return;
+		}
+		try (Reader reader = (args.length == 1) ? new FileReader(args[0]) : new InputStreamReader(System.in)) {
+			OutputStream out = new BufferedOutputStream(System.out, 1 << 16);
+			decode(new BufferedReader(reader), out);
+			out.flush();
+		} catch (IOException e) {
+			System.out.println("Unable to decode: " + (args.length == 1 ? args[0] : "standard input"));
+			System.out.println(e.toString());
+		}
+	}
+
+	/** Write every solution in the delta stream in console format
+	 * @param in delta stream
+	 * @param out destination for console format solutions
+	 * @throws IOException if reading or writing fails
+	 */
+	public static void decode(BufferedReader in, OutputStream out) throws IOException {
+		//the first solution is a full grid, ending at the first '-' line
+		ArrayList<byte[]> rows = new ArrayList<byte[]>();
+		String line = in.readLine();
+		while (line != null && !line.startsWith("-")) {
+			rows.add(line.getBytes("US-ASCII"));
+			line = in.readLine();
+		}
+		if (rows.isEmpty()) {
+			return;
+		}
+		byte[][] grid = rows.toArray(new byte[rows.size()][]);
+		writeGrid(grid, out);
+
+		while (line != null) {
+			String added = in.readLine();
+			if (!line.startsWith("-") || added == null || !added.startsWith("+")) {
+				throw new IOException("malformed delta: " + line);
+			}
+			apply(grid, line, (byte) 'O');
+			apply(grid, added, (byte) 'T');
+			out.write('\n');
+			writeGrid(grid, out);
+			line = in.readLine();
+		}
+	}
+
+	/** set every " row,col" position listed after the first character of line to c */
+	private static void apply(byte[][] grid, String line, byte c) throws IOException {
+		int i = 1;
+		while (i < line.length()) {
+			if (line.charAt(i) == ' ') {
+				i++;
+				continue;
+			}
+			int comma = line.indexOf(',', i);
+			int end = line.indexOf(' ', i);
+			if (end < 0) {
+				end = line.length();
+			}
+			if (comma < 0 || comma > end) {
+				throw new IOException("malformed position in: " + line);
+			}
+			int row = Integer.parseInt(line.substring(i, comma));
+			int col = Integer.parseInt(line.substring(comma + 1, end));
+			grid[row][2 * col] = c;	//grid rows are "c c c "
+			i = end;
+		}
+	}
+
+	private static void writeGrid(byte[][] grid, OutputStream out) throws IOException {
+		for (byte[] row : grid) {
+			out.write(row);
+			out.write('\n');
+		}
+	}
+}
@@ -0,0 +1,62 @@
+import java.util.List;
+import javax.swing.AbstractListModel;
+
+/**
+ * List model naming each solution of a list ("Solution 1", "Solution 2", ...)
+ * only when the JList asks for it, so nothing is built per solution up front
+ * and lazily computed solution lists of any size can be browsed.
+ * 
+ * @author Chelsea Ma
+ */
+public class SolutionListModel extends AbstractListModel<String> {
+	private static final long serialVersionUID = 1L;
+
+	private final List<TraceState> solutions;
+	private String emptyText = "No solutions found";
+
+	/**
+	 * @param solutions solutions to name, only size() is ever called
+	 */
+	public SolutionListModel(List<TraceState> solutions) {
+		this.solutions = solutions;
+	}
+
+	@Override
+	public int getSize() {
+		return solutions.isEmpty() ? 1 : solutions.size();
+	}
+
+	@Override
+	public String getElementAt(int index) {
+		return solutions.isEmpty() ? emptyText : "Solution " + (index + 1);
+	}
+
+	/**
+	 * @param emptyText shown as the only row while there are no solutions
+	 */
+	public void setEmptyText(String emptyText) {
+		this.emptyText = emptyText;
+		if (solutions.isEmpty()) {
+			fireContentsChanged(this, 0, 0);
+		}
+	}
+
+	/**
+	 * Tell the JList that solutions were appended to the list.
+	 * @param oldSize size of the solution list before the append
+	 */
+	public void solutionsAdded(int oldSize) {
+		int newSize = solutions.size();
+		if (newSize == oldSize) {
+			return;
+		}
+		if (oldSize == 0) {
+			//the placeholder row becomes the first solution
+			fireContentsChanged(this, 0, 0);
+			oldSize = 1;
+		}
+		if (newSize > oldSize) {
+			fireIntervalAdded(this, oldSize, newSize - 1);
+		}
+	}
+}
@@ -0,0 +1,328 @@
+import java.awt.Point;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * Writes solutions in the console format of CircuitBoard.toString(), with a
+ * blank line between solutions. Every solution is rendered straight into one
+ * reusable byte buffer by copying a pre-rendered image of the original board
+ * and overwriting the path positions with 'T', so no Strings are created and
+ * the stream is only written when the buffer fills.
+ * 
+ * Two path-only formats, one line per solution, are also available:
+ *  moves - the '1' position and a run-length encoded move string that walks
+ *   from '1' through the trace into '2', e.g. "0,0 R3D2" (U, D, L, R)
+ *  JSON - {"solution":1,"length":3,"path":[[0,1],[0,2],[1,2]]} where path
+ *   holds the row, column of each trace position
+ * 
+ * The delta format writes the first solution in console format and every
+ * later solution as two lines listing the row,col positions that left and
+ * joined the trace since the previous solution, e.g.
+ *   - 1,2 1,3
+ *   + 2,1 3,1
+ * Grid lines never begin with '-', so a reader knows where the grid ends.
+ * SolutionDeltaDecoder turns this back into console format.
+ * 
+ * writeHeatmap() reports how many shortest traces pass through each position,
+ * as a grid of counts in place of the board, then lists the positions that
+ * every shortest trace passes through.
+ * 
+ * @author Chelsea Ma
+ */
+public class SolutionWriter {
+	private static final int BUFFER_BYTES = 1 << 16;
+
+	private final OutputStream out;
+	private final CircuitBoard original;
+	private final int rows;
+	private final int cols;
+	private final Point start;
+	private final Point end;
+	/** the original board as console bytes - "c " per position and '\n' per row,
+	 * built the first time a solution is written in console format */
+	private byte[] template;
+	private byte[] buffer;
+	private int count;		//bytes waiting in buffer
+	private int solutions;	//solutions written so far
+	private long drained;	//bytes handed to the destination so far
+	/** number of the last solution whose path included each position, for writeDelta */
+	private int[] onPath;
+	/** positions of the previous solution's path as row-major indices */
+	private int[] previousPath = new int[0];
+
+	/**
+	 * @param original board that solutions were traced on
+	 * @param out destination, written in large chunks and flushed by flush()
+	 */
+	public SolutionWriter(CircuitBoard original, OutputStream out) {
+		this.out = out;
+		this.original = original;
+		rows = original.numRows();
+		cols = original.numCols();
+		start = original.getStartingPoint();
+		end = original.getEndingPoint();
+		buffer = new byte[BUFFER_BYTES];
+	}
+
+	/** Render the original board into template and make the buffer big enough
+	 * to hold a whole solution. The path-only formats never need either, so
+	 * huge boards can be written in them without a copy of the board's text.
+	 */
+	private void buildTemplate() throws IOException {
+		template = new byte[rows * (2 * cols + 1)];
+		int i = 0;
+		for (int row = 0; row < rows; row++) {
+			for (int col = 0; col < cols; col++) {
+				template[i++] = (byte) original.charAt(row, col);
+				template[i++] = ' ';
+			}
+			template[i++] = '\n';
+		}
+		if (buffer.length < template.length + 1) {
+			drain();
+			buffer = new byte[template.length + 1];
+		}
+	}
+
+	/** Write one solution, preceded by a blank line unless it is the first
+	 * @param solution solution to write
+	 * @throws IOException if the destination cannot be written
+	 */
+	public void write(TraceState solution) throws IOException {
+		if (template == null) {
+			buildTemplate();
+		}
+		if (buffer.length - count < template.length + 1) {
+			drain();
+		}
+		if (solutions++ > 0) {
+			buffer[count++] = '\n';
+		}
+		System.arraycopy(template, 0, buffer, count, template.length);
+		for (Point p : solution.getPath()) {
+			buffer[count + p.x * (2 * cols + 1) + 2 * p.y] = 'T';
+		}
+		count += template.length;
+	}
+
+	/** Write one solution as the positions removed from and added to the
+	 * previous solution's trace, or in full if it is the first
+	 * @param solution solution to write
+	 * @throws IOException if the destination cannot be written
+	 */
+	public void writeDelta(TraceState solution) throws IOException {
+		if (onPath == null) {
+			onPath = new int[rows * cols];
+		}
+		int previous = solutions;
+		int number = solutions + 1;
+		List<Point> path = solution.getPath();
+		int[] currentPath = new int[path.size()];
+		int[] added = new int[path.size()];
+		int addedCount = 0;
+		for (int i = 0; i < currentPath.length; i++) {
+			currentPath[i] = path.get(i).x * cols + path.get(i).y;
+			if (onPath[currentPath[i]] != previous) {
+				added[addedCount++] = currentPath[i];
+			}
+			onPath[currentPath[i]] = number;
+		}
+
+		if (previous == 0) {
+			write(solution);
+		} else {
+			solutions++;
+			put('-');
+			for (int cell : previousPath) {
+				if (onPath[cell] == previous) {	//not re-marked, so no longer on the path
+					putCell(cell);
+				}
+			}
+			put('\n');
+			put('+');
+			for (int i = 0; i < addedCount; i++) {
+				putCell(added[i]);
+			}
+			put('\n');
+		}
+		previousPath = currentPath;
+	}
+
+	/** buffer " row,col" for a row-major position index */
+	private void putCell(int cell) throws IOException {
+		put(' ');
+		putInt(cell / cols);
+		put(',');
+		putInt(cell % cols);
+	}
+
+	/** Write one solution as the '1' position and a run-length encoded move string
+	 * @param solution solution to write
+	 * @throws IOException if the destination cannot be written
+	 */
+	public void writeMoves(TraceState solution) throws IOException {
+		solutions++;
+		putInt(start.x);
+		put(',');
+		putInt(start.y);
+		put(' ');
+
+		Point previous = start;
+		char move = 0;
+		int run = 0;
+		List<Point> path = solution.getPath();
+		for (int i = 0; i <= path.size(); i++) {
+			Point next = (i < path.size()) ? path.get(i) : end;
+			char step = (next.x < previous.x) ? 'U' : (next.x > previous.x) ? 'D' : (next.y < previous.y) ? 'L' : 'R';
+			if (step != move && run > 0) {
+				put(move);
+				putInt(run);
+				run = 0;
+			}
+			move = step;
+			run++;
+			previous = next;
+		}
+		put(move);
+		putInt(run);
+		put('\n');
+	}
+
+	/** Write one solution as a line of JSON holding its trace positions
+	 * @param solution solution to write
+	 * @throws IOException if the destination cannot be written
+	 */
+	public void writeJson(TraceState solution) throws IOException {
+		List<Point> path = solution.getPath();
+		putAscii("{\"solution\":");
+		putInt(++solutions);
+		putAscii(",\"length\":");
+		putInt(path.size());
+		putAscii(",\"path\":[");
+		for (int i = 0; i < path.size(); i++) {
+			if (i > 0) {
+				put(',');
+			}
+			put('[');
+			putInt(path.get(i).x);
+			put(',');
+			putInt(path.get(i).y);
+			put(']');
+		}
+		putAscii("]}\n");
+	}
+
+	/** Write the number of shortest traces through each position as a grid,
+	 * with '-' for positions on no shortest trace (including '1' and '2'),
+	 * followed by the positions that all shortest traces pass through
+	 * @param dag shortest traces of the board this writer was created for
+	 * @throws IOException if the destination cannot be written
+	 */
+	public void writeHeatmap(ShortestPathDag dag) throws IOException {
+		long total = dag.count();
+		if (total == 0) {
+			putAscii("No shortest traces\n");
+			return;
+		}
+		putAscii("Shortest traces: ");
+		putLong(total);
+		putAscii(" of length ");
+		putInt(dag.traceLength());
+		put('\n');
+
+		//right-align every count to the width of the largest one
+		int width = digits(total);
+		for (int row = 0; row < rows; row++) {
+			for (int col = 0; col < cols; col++) {
+				long through = dag.tracesThrough(row, col);
+				for (int pad = digits(through); pad < width; pad++) {
+					put(' ');
+				}
+				if (through > 0) {
+					putLong(through);
+				} else {
+					put('-');
+				}
+				put((col < cols - 1) ? ' ' : '\n');
+			}
+		}
+
+		//saturated counts can't tell which positions every trace uses
+		if (total < Long.MAX_VALUE) {
+			putAscii("On every shortest trace:");
+			boolean any = false;
+			for (int cell = 0; cell < rows * cols; cell++) {
+				if (dag.tracesThrough(cell / cols, cell % cols) == total) {
+					putCell(cell);
+					any = true;
+				}
+			}
+			putAscii(any ? "\n" : " none\n");
+		}
+	}
+
+	/** Write any buffered bytes and flush the destination
+	 * @throws IOException if the destination cannot be written
+	 */
+	public void flush() throws IOException {
+		drain();
+		out.flush();
+	}
+
+	/** @return number of bytes written so far, including any still buffered */
+	public long bytesWritten() {
+		return drained + count;
+	}
+
+	/** buffer one ASCII character */
+	private void put(char c) throws IOException {
+		if (count == buffer.length) {
+			drain();
+		}
+		buffer[count++] = (byte) c;
+	}
+
+	/** buffer an ASCII string constant */
+	private void putAscii(String s) throws IOException {
+		for (int i = 0; i < s.length(); i++) {
+			put(s.charAt(i));
+		}
+	}
+
+	/** buffer a non-negative int in decimal without creating a String */
+	private void putInt(int value) throws IOException {
+		putLong(value);
+	}
+
+	/** buffer a non-negative long in decimal without creating a String */
+	private void putLong(long value) throws IOException {
+		if (buffer.length - count < 19) {
+			drain();
+		}
+		int digits = digits(value);
+		for (int i = count + digits - 1; i >= count; i--) {
+			buffer[i] = (byte) ('0' + value % 10);
+			value /= 10;
+		}
+		count += digits;
+	}
+
+	/** @return number of decimal digits in a non-negative value */
+	private static int digits(long value) {
+		int digits = 1;
+		for (long rest = value / 10; rest > 0; rest /= 10) {
+			digits++;
+		}
+		return digits;
+	}
+
+	/** hand buffered bytes to the destination without flushing it */
+	private void drain() throws IOException {
+		if (count > 0) {
+			out.write(buffer, 0, count);
+			drained += count;
+			count = 0;
+		}
+	}
+}
@@ -119,4 +119,10 @@ public class Storage<T>
 		} 
 		return size;
 	}
+
+	/** @return the data structure this Storage uses */
+	public DataStructure getDataStructure() 
+	{
+		return dataStructure;
+	}
 } // class Storage
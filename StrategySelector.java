@@ -0,0 +1,116 @@
+/**
+ * Picks how to find the shortest paths of a board from a quick analysis of
+ * it, for CircuitTracer's -a option.
+ *
+ * Both searches only store states on some shortest path, so the shortest
+ * path graph gives the number of states either one expands, and a queue
+ * holds up to all the shortest partial paths of one length at once. A stack
+ * only holds about length * branching states. Both keep every solution as
+ * a full TraceState. So the queue is used when its frontier and the
+ * solutions fit comfortably in memory, the stack when only the solutions
+ * do, and otherwise the shortest path graph, which builds each path only
+ * when it is written.
+ *
+ * @author Chelsea Ma
+ */
+public class StrategySelector {
+	/** the ways the shortest paths can be found */
+	public static enum Strategy {stack, queue, dag}
+
+	/** most states a search should expand in reasonable time */
+	private static final long STATE_LIMIT = 20000000;
+
+	private final ShortestPathDag dag;
+	private final int openCount;
+	private final double branching;
+	private final long stateBytes;
+	private final long estimatedStates;
+	private final double frontierBytes;
+	private final double solutionBytes;
+	private final long memoryBudget;
+	private final Strategy strategy;
+	private final String reason;
+
+	/**
+	 * @param board board to analyze
+	 */
+	public StrategySelector(CircuitBoard board) {
+		int rows = board.numRows();
+		int cols = board.numCols();
+		dag = new ShortestPathDag(board);
+		int length = dag.traceLength();
+
+		//open positions and how many ways a path can go on from each one
+		int open = 0;
+		long exits = 0;
+		for (int row = 0; row < rows; row++) {
+			for (int col = 0; col < cols; col++) {
+				if (board.isOpen(row, col)) {
+					open++;
+					int neighbors = (board.isOpen(row - 1, col) ? 1 : 0) + (board.isOpen(row + 1, col) ? 1 : 0)
+							+ (board.isOpen(row, col - 1) ? 1 : 0) + (board.isOpen(row, col + 1) ? 1 : 0);
+					exits += Math.max(0, neighbors - 1); //the way back is never open
+				}
+			}
+		}
+		openCount = open;
+		branching = (open == 0) ? 1 : Math.max(1, (double) exits / open);
+
+		//a TraceState is a board copy and a copy of its path
+		stateBytes = 144 + 8L * ((rows * (long) cols + 31) / 32) + 6L * Math.max(length, 0);
+		estimatedStates = dag.partialTraces();
+		frontierBytes = (double) dag.widestLevel() * stateBytes;
+		solutionBytes = (double) dag.count() * stateBytes;
+		memoryBudget = Runtime.getRuntime().maxMemory() / 2;
+
+		if (length == DistanceField.UNREACHABLE) {
+			strategy = Strategy.dag;
+			reason = "'1' and '2' cannot be connected";
+		} else if (solutionBytes > memoryBudget) {
+			strategy = Strategy.dag;
+			reason = "the solutions would not fit in memory, so each is built only when written";
+		} else if (frontierBytes + solutionBytes <= memoryBudget && estimatedStates <= STATE_LIMIT) {
+			strategy = Strategy.queue;
+			reason = "the breadth-first frontier fits in memory";
+		} else if (estimatedStates <= STATE_LIMIT) {
+			strategy = Strategy.stack;
+			reason = "the breadth-first frontier would not fit in memory but a depth-first search keeps few states";
+		} else {
+			strategy = Strategy.dag;
+			reason = "a search would expand too many states";
+		}
+	}
+
+	/** @return the chosen way to find the shortest paths */
+	public Strategy getStrategy() {
+		return strategy;
+	}
+
+	/** @return the shortest path graph built for the analysis, reusable when dag is chosen */
+	public ShortestPathDag getDag() {
+		return dag;
+	}
+
+	/** @return one line describing the analysis and the choice */
+	@Override
+	public String toString() {
+		String length = (dag.traceLength() == DistanceField.UNREACHABLE) ? "none" : String.valueOf(dag.traceLength());
+		String paths = (dag.count() == Long.MAX_VALUE) ? "at least " + Long.MAX_VALUE : String.valueOf(dag.count());
+		return String.format("auto: %d open positions, shortest length %s, branching %.2f, %s shortest paths;"
+				+ " %d states to search, queue frontier %s, solutions %s of %s budget -> %s (%s)",
+				openCount, length, branching, paths, estimatedStates, bytes(frontierBytes), bytes(solutionBytes),
+				bytes(memoryBudget), strategy, reason);
+	}
+
+	/** @return a byte count in readable units */
+	private static String bytes(double bytes) {
+		String[] units = {"B", "KB", "MB", "GB", "TB"};
+		int unit = 0;
+		while (bytes >= 1024 && unit < units.length - 1) {
+			bytes /= 1024;
+			unit++;
+		}
+		return (unit == units.length - 1 && bytes >= 1024) ? String.format("%.3g %s", bytes, units[unit])
+				: String.format("%.1f %s", bytes, units[unit]);
+	}
+}
@@ -0,0 +1,389 @@
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+/**
+ * Search for all shortest paths between the components of a CircuitBoard,
+ * exploring TraceStates in the order decided by a Storage. A search can be
+ * watched from another thread through its counters and cancelled at any time.
+ * 
+ * The exact shortest trace length is known up front from a DistanceField, so
+ * a solution of that length is final as soon as it is found and is passed to
+ * the listener immediately. The same distances prune any state whose path,
+ * plus the least number of positions still needed to reach '2', is longer
+ * than that length; such a state can never complete a shortest path, and
+ * removing whole subtrees from a stack or queue search keeps the order of
+ * the rest, so the solutions and their order are not affected. Only states
+ * on some shortest path are ever stored, so the first solution found is
+ * already optimal. Nor can a stored state lead into a dead end: a shortest
+ * continuation that crossed its own path would give a shorter trace. So a
+ * stack search finds its first solution after exactly as many states as a
+ * shortest trace has positions, whatever order the neighbors are pushed in;
+ * firstSolutionStates() and firstSolutionLength() report it.
+ * 
+ * A deadline and a limit on the states expanded can be set. When either is
+ * reached the search stops, and run() returns the best solutions found so
+ * far, which are proven optimal only if their length equals the shortest
+ * length known from the DistanceField. The search can also stop once it has
+ * a given number of optimal solutions, which are then the first ones in the
+ * storage's search order.
+ * 
+ * @author Chelsea Ma
+ */
+public class TraceSearch {
+	/** why a search stopped */
+	public static enum Outcome {running, complete, cancelled, deadline, stateLimit, solutionLimit}
+
+	private static final int[][] DIRECTIONS = {{-1, 0}, {1, 0}, {0, -1}, {0, 1}};
+
+	private final CircuitBoard board;
+	private final Storage<TraceState> stateStore;
+	private final DistanceField toEnd;
+	/** length of a shortest trace, or DistanceField.UNREACHABLE */
+	private final int shortestLength;
+	private Consumer<TraceState> listener;
+	/** milliseconds run() may take, 0 for no limit */
+	private long deadlineMillis;
+	/** most states run() may expand */
+	private long maxStates = Long.MAX_VALUE;
+	/** run() stops after this many optimal solutions */
+	private int maxSolutions = Integer.MAX_VALUE;
+	private volatile Outcome outcome = Outcome.running;
+	/** per-position visit and prune counts, or null when not counting */
+	private ExplorationMap exploration;
+
+	//progress, written by the searching thread and readable from any other
+	private volatile boolean cancelled;
+	private volatile long statesExpanded;
+	private volatile int frontierSize;
+	private volatile int peakFrontier;
+	private volatile int bestLength = Integer.MAX_VALUE;
+	private volatile int solutionsFound;
+	private volatile long firstSolutionStates;
+	private volatile int firstSolutionLength;
+	private volatile long startNanos;
+	private volatile long endNanos;
+	/** the optimal solutions found so far, readable while the search runs */
+	private final ConcurrentLinkedQueue<TraceState> optimal = new ConcurrentLinkedQueue<>();
+
+	/**
+	 * @param board board to search, never modified
+	 * @param stateStore empty storage that decides the search order
+	 */
+	public TraceSearch(CircuitBoard board, Storage<TraceState> stateStore) {
+		this.board = board;
+		this.stateStore = stateStore;
+		toEnd = DistanceField.toEnd(board);
+		shortestLength = toEnd.traceLengthFrom(board.getStartingPoint().x, board.getStartingPoint().y);
+	}
+
+	/** @param listener called on the searching thread with each solution as soon as it is known to be optimal */
+	public void setListener(Consumer<TraceState> listener) {
+		this.listener = listener;
+	}
+
+	/** @param millis longest time run() may take, from when it starts, or 0 for no limit */
+	public void setDeadline(long millis) {
+		deadlineMillis = millis;
+	}
+
+	/** @param states most states run() may expand */
+	public void setMaxStates(long states) {
+		maxStates = states;
+	}
+
+	/** @param solutions number of optimal solutions after which run() stops */
+	public void setMaxSolutions(int solutions) {
+		maxSolutions = solutions;
+	}
+
+	/** Count where the search spends its effort. Call before run().
+	 * @return the map that run() will fill in
+	 */
+	public ExplorationMap countExploration() {
+		if (exploration == null) {
+			exploration = new ExplorationMap(board.numRows(), board.numCols());
+		}
+		return exploration;
+	}
+
+	/** @return the exploration counts, or null if countExploration() was not called */
+	public ExplorationMap exploration() {
+		return exploration;
+	}
+
+	/** Run the search to completion or until cancelled
+	 * @return all shortest solutions in the order they were found, or those found before cancel()
+	 */
+	public ArrayList<TraceState> run() {
+		TracerEvents.Search event = new TracerEvents.Search();
+		event.begin();
+		startNanos = System.nanoTime();
+		try {
+			ArrayList<TraceState> bestPaths = search();
+			event.end();
+			if (event.shouldCommit()) {
+				event.storage = storageName();
+				event.statesExpanded = statesExpanded;
+				event.peakFrontier = peakFrontier;
+				event.optimalLength = shortestLength;
+				event.solutions = bestPaths.size();
+				event.firstSolutionStates = firstSolutionStates;
+				event.firstSolutionLength = firstSolutionLength;
+				event.cancelled = cancelled;
+				event.commit();
+			}
+			return bestPaths;
+		} finally {
+			if (outcome == Outcome.running) {
+				outcome = cancelled ? Outcome.cancelled : Outcome.complete;
+			}
+			endNanos = System.nanoTime();
+		}
+	}
+
+	/** the search loop of run() */
+	private ArrayList<TraceState> search() {
+		ArrayList<TraceState> bestPaths = new ArrayList<>();
+
+		//initialize with starting positions adjacent to component '1'
+		Point start = board.getStartingPoint();
+		for (int[] dir : DIRECTIONS) {
+			int newRow = start.x + dir[0];
+			int newCol = start.y + dir[1];
+
+			if (board.isOpen(newRow, newCol)) {
+				if (canImprove(1, newRow, newCol)) {
+					stateStore.store(new TraceState(board, newRow, newCol));
+				} else if (exploration != null) {
+					exploration.prune(newRow, newCol);
+				}
+			}
+		}
+
+		//search for best paths within the budget
+		long deadline = startNanos + deadlineMillis * 1000000;
+		while (!stateStore.isEmpty() && !cancelled) {
+			if (solutionsFound >= maxSolutions) {
+				outcome = Outcome.solutionLimit;
+				break;
+			}
+			if (statesExpanded >= maxStates) {
+				outcome = Outcome.stateLimit;
+				break;
+			}
+			if (deadlineMillis > 0 && System.nanoTime() - deadline >= 0) {
+				outcome = Outcome.deadline;
+				break;
+			}
+			TraceState currentState = stateStore.retrieve();
+			statesExpanded++;
+			if (exploration != null) {
+				exploration.visit(currentState.getRow(), currentState.getCol());
+			}
+
+			if (currentState.isSolution()) {
+				//solution found
+				if (firstSolutionLength == 0) {
+					firstSolutionStates = statesExpanded;
+					firstSolutionLength = currentState.pathLength();
+				}
+				if (bestPaths.isEmpty() || currentState.pathLength() == bestPaths.get(0).pathLength()) {
+					//first solution or equal length
+					bestPaths.add(currentState);
+				} else if (currentState.pathLength() < bestPaths.get(0).pathLength()) {
+					//shorter path found
+					bestPaths.clear();
+					bestPaths.add(currentState);
+				}
+				bestLength = bestPaths.get(0).pathLength();
+				if (currentState.pathLength() == shortestLength) {
+					optimal.add(currentState);
+					solutionsFound++;
+					if (listener != null) {
+						listener.accept(currentState);
+					}
+				}
+			} else {
+				//generate next states that could still be part of a best path
+				int currentRow = currentState.getRow();
+				int currentCol = currentState.getCol();
+				int nextLength = currentState.pathLength() + 1;
+
+				for (int[] dir : DIRECTIONS) {
+					int newRow = currentRow + dir[0];
+					int newCol = currentCol + dir[1];
+
+					if (currentState.isOpen(newRow, newCol)) {
+						if (canImprove(nextLength, newRow, newCol)) {
+							stateStore.store(new TraceState(currentState, newRow, newCol));
+						} else if (exploration != null) {
+							exploration.prune(newRow, newCol);
+						}
+					}
+				}
+			}
+			frontierSize = stateStore.size();
+			if (frontierSize > peakFrontier) {
+				peakFrontier = frontierSize;
+			}
+		}
+		return bestPaths;
+	}
+
+	/** @return true if a path of the given length ending at row, col could still
+	 * reach '2' without becoming longer than a shortest trace */
+	private boolean canImprove(int length, int row, int col) {
+		int remaining = toEnd.distance(row, col);
+		return remaining != DistanceField.UNREACHABLE && length + remaining - 1 <= shortestLength;
+	}
+
+	/** Stop the search at the next state; run() returns the solutions found so far */
+	public void cancel() {
+		cancelled = true;
+	}
+
+	/** @return true if cancel() has been called */
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	/** @return number of states taken from storage so far */
+	public long statesExpanded() {
+		return statesExpanded;
+	}
+
+	/** @return number of states waiting in storage */
+	public int frontierSize() {
+		return frontierSize;
+	}
+
+	/** @return largest number of states that have been waiting in storage at once */
+	public int peakFrontier() {
+		return peakFrontier;
+	}
+
+	/** @return length of the best solution found so far, or 0 if there is none yet */
+	public int bestLength() {
+		int best = bestLength;
+		return (best == Integer.MAX_VALUE) ? 0 : best;
+	}
+
+	/** @return number of solutions found that are known to be optimal */
+	public int solutionsFound() {
+		return solutionsFound;
+	}
+
+	/** @return number of states expanded when the first solution was found, or 0 if there is none yet */
+	public long firstSolutionStates() {
+		return firstSolutionStates;
+	}
+
+	/** @return length of the first solution found, or 0 if there is none yet */
+	public int firstSolutionLength() {
+		return firstSolutionLength;
+	}
+
+	/**
+	 * @param max largest number of solutions to return
+	 * @return the first max solutions found so far that are known to be optimal, in the order found
+	 */
+	public List<TraceState> solutionsSoFar(int max) {
+		List<TraceState> found = new ArrayList<>();
+		for (TraceState solution : optimal) {
+			if (found.size() >= max) {
+				break;
+			}
+			found.add(solution);
+		}
+		return found;
+	}
+
+	/** @return why the search stopped, or running if it has not */
+	public Outcome outcome() {
+		return outcome;
+	}
+
+	/** @return one line saying how the search ended and how close its best solutions are to optimal */
+	public String summary() {
+		return summary(storageName(), outcome, statesExpanded, elapsedNanos(), shortestLength, bestLength(),
+				firstSolutionStates, firstSolutionLength, solutionsFound);
+	}
+
+	/**
+	 * The summary line shared by the searches that honor a budget
+	 * @param name what searched, e.g. "stack"
+	 * @param outcome why the search stopped
+	 * @param states number of states expanded
+	 * @param nanos time the search took
+	 * @param shortestLength length of a shortest trace, or DistanceField.UNREACHABLE
+	 * @param best length of the best solution found, or 0 if there is none
+	 * @param firstStates number of states expanded when the first solution was found
+	 * @param firstLength length of the first solution found
+	 * @param solutionsFound number of solutions found that are known to be optimal
+	 * @return one line saying how the search ended and how close its best solutions are to optimal
+	 */
+	static String summary(String name, Outcome outcome, long states, long nanos, int shortestLength, int best,
+			long firstStates, int firstLength, int solutionsFound) {
+		StringBuilder s = new StringBuilder(String.format("%s search %s after %d states in %.1f ms",
+				name, describe(outcome), states, nanos / 1e6));
+		if (shortestLength == DistanceField.UNREACHABLE) {
+			return s.append("; no solution exists").toString();
+		}
+		if (best == 0) {
+			s.append("; no solution found yet, lower bound ").append(shortestLength);
+		} else {
+			s.append("; best length ").append(best).append(", lower bound ").append(shortestLength)
+				.append(", gap ").append(best - shortestLength);
+			s.append((best == shortestLength) ? ", proven optimal" : ", not proven optimal");
+			s.append("; first solution after ").append(firstStates).append(" states at length ")
+				.append(firstLength);
+		}
+		if (outcome != Outcome.complete && outcome != Outcome.solutionLimit && solutionsFound > 0) {
+			s.append("; ").append(solutionsFound).append(" optimal solutions found, there may be more");
+		}
+		return s.toString();
+	}
+
+	private static String describe(Outcome outcome) {
+		switch (outcome) {
+			case complete:
+				return "completed";
+			case deadline:
+				return "stopped at its deadline";
+			case stateLimit:
+				return "stopped at its state limit";
+			case solutionLimit:
+				return "stopped at its solution limit";
+			default:
+				return outcome.name();
+		}
+	}
+
+	/** @return true from the start of run() until it returns */
+	public boolean isRunning() {
+		return startNanos != 0 && endNanos == 0;
+	}
+
+	/** @return name of the storage deciding the search order, "stack" or "queue" */
+	public String storageName() {
+		return stateStore.getDataStructure().name();
+	}
+
+	/** @return nanoseconds the search has been running, or ran for if it is over, 0 before run() */
+	public long elapsedNanos() {
+		long start = startNanos;
+		if (start == 0) {
+			return 0;
+		}
+		long end = endNanos;
+		return ((end != 0) ? end : System.nanoTime()) - start;
+	}
+
+	/** @return length of a shortest trace, or DistanceField.UNREACHABLE if the components cannot be connected */
+	public int shortestLength() {
+		return shortestLength;
+	}
+}
@@ -1,5 +1,6 @@
 import java.awt.Point;
 import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Represents a potential path through a CircuitBoard - a search state for CircuitTracer.
@@ -34,6 +35,18 @@ public class TraceState {
 		path.add(new Point(row, col));
 	}
 	
+	/** State holding a complete path, e.g. a solution read back from storage
+	 * @param startingBoard board the path was traced on
+	 * @param path row, column points of the path in order
+	 */
+	public TraceState(CircuitBoard startingBoard, List<Point> path) {
+		board = new CircuitBoard(startingBoard);
+		this.path = new ArrayList<Point>(path);
+		for (Point p : path) {
+			board.makeTrace(p.x, p.y); //will throw exception if a point is occupied
+		}
+	}
+	
 	/** Indicates if a position is open in this state's board
 	 * @param row row of position to check
 	 * @param col column of position to check
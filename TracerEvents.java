@@ -0,0 +1,122 @@
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+import jdk.jfr.StackTrace;
+
+/**
+ * Java Flight Recorder events for the phases of a CircuitTracer run, so a
+ * recording (java -XX:StartFlightRecording=filename=run.jfr CircuitTracer ...)
+ * shows how long loading, searching and writing took and how big each was.
+ * Events cost next to nothing when no recording is running.
+ *
+ * @author Chelsea Ma
+ */
+public final class TracerEvents {
+	private TracerEvents() {
+	}
+
+	/** reading a board file, including any binary sidecar handling */
+	@Name("circuittracer.BoardLoad")
+	@Label("Board Load")
+	@Category("CircuitTracer")
+	@StackTrace(false)
+	static class BoardLoad extends Event {
+		@Label("File")
+		String file;
+
+		@Label("Rows")
+		int rows;
+
+		@Label("Columns")
+		int cols;
+
+		@Label("File Size")
+		@DataAmount(DataAmount.BYTES)
+		long bytes;
+
+		@Label("Cached")
+		@Description("Loaded through the binary sidecar cache")
+		boolean cached;
+	}
+
+	/**
+	 * one search for the shortest paths, in any storage mode; -v and -1 build
+	 * their paths without expanding any states and report none
+	 */
+	@Name("circuittracer.Search")
+	@Label("Search")
+	@Category("CircuitTracer")
+	@StackTrace(false)
+	static class Search extends Event {
+		@Label("Storage")
+		@Description("stack, queue, backtrack, contracted stack or queue, counted (-v) or single (-1)")
+		String storage;
+
+		@Label("States Expanded")
+		long statesExpanded;
+
+		@Label("Peak Frontier")
+		@Description("Most states waiting in storage at once, 0 without storage")
+		int peakFrontier;
+
+		@Label("Optimal Length")
+		@Description("Positions in a shortest trace, -1 if there is none")
+		int optimalLength;
+
+		@Label("Solutions")
+		int solutions;
+
+		@Label("First Solution States")
+		@Description("States expanded when the first solution was found, 0 if there was none")
+		long firstSolutionStates;
+
+		@Label("First Solution Length")
+		@Description("Positions in the first solution found, 0 if there was none")
+		int firstSolutionLength;
+
+		@Label("Cancelled")
+		boolean cancelled;
+	}
+
+	/** progress of each running stack or queue search, taken once a second */
+	@Name("circuittracer.FrontierSample")
+	@Label("Frontier Sample")
+	@Category("CircuitTracer")
+	@Period("1 s")
+	@StackTrace(false)
+	static class FrontierSample extends Event {
+		@Label("Storage")
+		String storage;
+
+		@Label("Frontier Size")
+		int frontierSize;
+
+		@Label("States Expanded")
+		long statesExpanded;
+
+		@Label("Best Length")
+		@Description("Length of the best solution so far, 0 if there is none yet")
+		int bestLength;
+	}
+
+	/** encoding and writing the solutions */
+	@Name("circuittracer.Output")
+	@Label("Output")
+	@Category("CircuitTracer")
+	@StackTrace(false)
+	static class Output extends Event {
+		@Label("Format")
+		String format;
+
+		@Label("Solutions")
+		long solutions;
+
+		@Label("Bytes Written")
+		@DataAmount(DataAmount.BYTES)
+		long bytes;
+	}
+}